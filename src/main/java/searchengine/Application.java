@@ -5,11 +5,20 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.security.Security;
+
 @SpringBootApplication
 @ConfigurationPropertiesScan
 @EnableAsync
 public class Application {
+    private static final String DNS_CACHE_TTL = "300";
+
     public static void main(String[] args) {
+        // HttpClient resolves hosts through InetAddress, which reads its cache TTL once on first use,
+        // so it is set before anything resolves a host. -Dsun.net.inetaddr.ttl overrides it
+        if (System.getProperty("sun.net.inetaddr.ttl") == null)
+            Security.setProperty("networkaddress.cache.ttl", DNS_CACHE_TTL);
+
         SpringApplication.run(Application.class, args);
     }
 }
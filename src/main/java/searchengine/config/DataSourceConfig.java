@@ -0,0 +1,69 @@
+package searchengine.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import searchengine.config.properties.ReadDataSourceProperties;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(
+        prefix = "read-datasource",
+        name = "url"
+)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("write-pool");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(ReadDataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("read-pool");
+        dataSource.setJdbcUrl(properties.getUrl());
+        dataSource.setUsername(properties.getUsername());
+        dataSource.setPassword(properties.getPassword());
+        dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+        dataSource.setMinimumIdle(properties.getMinimumIdle());
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout());
+        dataSource.setIdleTimeout(properties.getIdleTimeout());
+        dataSource.setReadOnly(true);
+
+        if (properties.getDriverClassName() != null)
+            dataSource.setDriverClassName(properties.getDriverClassName());
+
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("writeDataSource") DataSource writeDataSource,
+            @Qualifier("readDataSource") DataSource readDataSource) {
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource();
+        routingDataSource.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.READ, readDataSource,
+                ReadWriteRoutingDataSource.WRITE, writeDataSource));
+        routingDataSource.setDefaultTargetDataSource(writeDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        // the connection is taken on the first statement, when the read-only flag of the transaction is already known
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -3,25 +3,32 @@ package searchengine.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
+import searchengine.config.properties.IndexingProperties;
 import searchengine.model.Page;
 
 import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 @Configuration
 public class ExecutorConfig {
-    private static final int NUM_OF_THREADS = Runtime.getRuntime().availableProcessors();
+    @Bean
+    @Scope("prototype")
+    public ExecutorService crawlExecutor(IndexingProperties indexingProperties) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+                indexingProperties.getCrawlThreads(),
+                runnable -> new Thread(runnable, "crawler-" + threadNumber.incrementAndGet()));
+    }
 
     @Bean
     @Scope("prototype")
-    public ForkJoinPool threadPoolTaskExecutor() {
-        return new ForkJoinPool(
-                NUM_OF_THREADS,
-                ForkJoinPool.defaultForkJoinWorkerThreadFactory,
-                null,
-                true);
+    public ExecutorService siteExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newCachedThreadPool(
+                runnable -> new Thread(runnable, "site-crawl-" + threadNumber.incrementAndGet()));
     }
 
     @Bean
@@ -31,6 +38,25 @@ public class ExecutorConfig {
                 new LinkedBlockingQueue<>());
     }
 
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService warmUpExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService politenessTimer() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "politeness-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     @Bean
     public Queue<Page> pageQueue() {
         return new ConcurrentLinkedQueue<>();
@@ -2,12 +2,29 @@ package searchengine.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import searchengine.config.properties.JedisProperties;
+
+import java.time.Duration;
 
 @Configuration
 public class JedisConfig {
-    @Bean
-    public Jedis getJedis() {
-        return new Jedis();
+    @Bean(destroyMethod = "close")
+    public JedisPool jedisPool(JedisProperties properties) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(properties.getMaxTotal());
+        poolConfig.setMaxIdle(properties.getMaxIdle());
+        poolConfig.setMinIdle(properties.getMinIdle());
+        poolConfig.setMaxWait(Duration.ofMillis(properties.getMaxWait()));
+        poolConfig.setTestWhileIdle(true);
+
+        return new JedisPool(
+                poolConfig,
+                properties.getHost(),
+                properties.getPort(),
+                properties.getTimeout(),
+                properties.getPassword(),
+                properties.getDatabase());
     }
 }
@@ -0,0 +1,31 @@
+package searchengine.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = ThreadLocal.withInitial(() -> false);
+
+    public static boolean enterReplicaRead() {
+        boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(true);
+        return previous;
+    }
+
+    public static void exitReplicaRead(boolean previous) {
+        if (previous)
+            REPLICA_READ.set(true);
+        else REPLICA_READ.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        // repository finders are read-only transactions as well, so the replica is used only inside @ReplicaRead
+        return REPLICA_READ.get() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? READ
+                : WRITE;
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "read-datasource", name = "url")
+public class ReplicaReadAspect {
+
+    @Around("@annotation(searchengine.annotations.ReplicaRead) || @within(searchengine.annotations.ReplicaRead)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadWriteRoutingDataSource.enterReplicaRead();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.exitReplicaRead(previous);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "canonicalization")
+public class CanonicalizationProperties {
+    private boolean enabled = true;
+    private List<String> ignoredParameters = List.of("utm_*", "gclid", "fbclid", "yclid", "_openstat", "ref");
+    private boolean sortParameters = true;
+    /**
+     * Servers often redirect between {@code /a} and {@code /a/}, so the path is kept as served unless ADD or REMOVE
+     * matches the site.
+     */
+    private TrailingSlash trailingSlash = TrailingSlash.KEEP;
+    private boolean mergeWwwHost = true;
+    private boolean relCanonical = true;
+
+    public enum TrailingSlash {
+        KEEP, ADD, REMOVE
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "checkpoint")
+public class CheckpointProperties {
+    private boolean enabled = true;
+    private long interval = 60;
+}
@@ -0,0 +1,18 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "circuit-breaker")
+public class CircuitBreakerProperties {
+    private int failureThreshold = 5;
+
+    /**
+     * Seconds a host is paused after its circuit opens, doubled each time a trial request fails.
+     */
+    private long openTime = 30;
+    private long maxOpenTime = 600;
+}
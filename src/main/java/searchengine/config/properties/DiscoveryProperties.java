@@ -0,0 +1,15 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "discovery")
+public class DiscoveryProperties {
+    private boolean sitemaps = true;
+    private int maxSitemapUrls = 100000;
+    private int maxSitemapDepth = 2;
+    private long robotsTxtTtl = 86400;
+}
@@ -0,0 +1,30 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "distributed")
+public class DistributedProperties {
+    private boolean enabled = false;
+
+    /**
+     * Unique name of this instance among the crawl nodes, the host name and the process id by default.
+     */
+    private String nodeId;
+    private int workerThreads = 4;
+    private int batchSize = 10;
+
+    /**
+     * Milliseconds a worker blocks waiting for new URLs.
+     */
+    private int blockTimeout = 1000;
+
+    /**
+     * Milliseconds after which URLs claimed by a node that stopped responding are claimed again.
+     */
+    private long claimIdleTime = 60000;
+    private long pollInterval = 1000;
+}
@@ -0,0 +1,23 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "fetcher")
+public class FetcherProperties {
+    private String userAgent = "SearchEngineBot/1.1";
+    private long connectTimeout = 5000;
+    private long readTimeout = 15000;
+    private long maxBodySize = 5 * 1024 * 1024;
+
+    /**
+     * Retries of a request that timed out, lost its connection or got 429/502/503/504. The delay before a retry
+     * is random up to {@code retryBaseDelay} milliseconds doubled on every attempt, at most {@code retryMaxDelay}.
+     */
+    private int maxRetries = 2;
+    private long retryBaseDelay = 500;
+    private long retryMaxDelay = 8000;
+}
@@ -0,0 +1,21 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "frontier")
+public class FrontierProperties {
+    private double depthWeight = 1.0;
+    private double inlinkWeight = 1.0;
+
+    /**
+     * Weights added to the priority of the URLs whose path matches, the first matching pattern applies.
+     */
+    private List<UrlPatternWeight> patterns = new ArrayList<>();
+}
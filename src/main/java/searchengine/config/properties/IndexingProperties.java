@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.List;
 
 @Getter
@@ -12,4 +13,39 @@ import java.util.List;
 public class IndexingProperties {
     private List<SiteConfig> sites;
     private List<String> forbiddenUrlTypes;
+    private int crawlThreads = Runtime.getRuntime().availableProcessors() * 4;
+    private int maxSiteConcurrency;
+
+    /**
+     * Crawl budgets of every site unless its config sets its own, unlimited if not set.
+     */
+    private Integer maxPages;
+    private Integer maxDepth;
+    private Long maxBytes;
+    private Duration maxWallTime;
+
+    /**
+     * Fetches one site may have in flight unless its config sets another cap, the whole crawl budget by default.
+     */
+    public int getMaxSiteConcurrency(SiteConfig site) {
+        if (site.getMaxConcurrency() != null)
+            return site.getMaxConcurrency();
+        return maxSiteConcurrency > 0 ? maxSiteConcurrency : crawlThreads;
+    }
+
+    public Integer getMaxPages(SiteConfig site) {
+        return site.getMaxPages() != null ? site.getMaxPages() : maxPages;
+    }
+
+    public Integer getMaxDepth(SiteConfig site) {
+        return site.getMaxDepth() != null ? site.getMaxDepth() : maxDepth;
+    }
+
+    public Long getMaxBytes(SiteConfig site) {
+        return site.getMaxBytes() != null ? site.getMaxBytes() : maxBytes;
+    }
+
+    public Duration getMaxWallTime(SiteConfig site) {
+        return site.getMaxWallTime() != null ? site.getMaxWallTime() : maxWallTime;
+    }
 }
@@ -0,0 +1,20 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "jedis")
+public class JedisProperties {
+    private String host = "localhost";
+    private int port = 6379;
+    private String password;
+    private int database = 0;
+    private int timeout = 2000;
+    private int maxTotal = 16;
+    private int maxIdle = 8;
+    private int minIdle = 0;
+    private long maxWait = 2000;
+}
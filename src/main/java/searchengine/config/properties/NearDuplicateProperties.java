@@ -0,0 +1,14 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "near-duplicates")
+public class NearDuplicateProperties {
+    private boolean enabled = true;
+    private int maxDistance = 3;
+    private int shingleSize = 3;
+}
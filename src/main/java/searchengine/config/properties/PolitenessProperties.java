@@ -0,0 +1,19 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "politeness")
+public class PolitenessProperties {
+    private double requestsPerSecond = 5;
+    private int burst = 1;
+    private int initialConnectionsPerHost = 1;
+    private int maxConnectionsPerHost = 4;
+    private boolean honorCrawlDelay = true;
+    private double latencyTolerance = 2.0;
+    private double backoffFactor = 0.5;
+    private long maxRetryAfter = 600;
+}
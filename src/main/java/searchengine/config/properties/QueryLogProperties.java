@@ -0,0 +1,16 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "query-log")
+public class QueryLogProperties {
+    private int maxEntries = 1000;
+    private int decayInterval = 10000;
+    private int warmUpQueries = 50;
+    private int warmUpLimit = 20;
+    private long warmUpDelay = 200;
+}
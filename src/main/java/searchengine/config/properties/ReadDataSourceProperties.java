@@ -0,0 +1,19 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "read-datasource")
+public class ReadDataSourceProperties {
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+    private int maximumPoolSize = 10;
+    private int minimumIdle = 2;
+    private long connectionTimeout = 5000;
+    private long idleTimeout = 600000;
+}
@@ -0,0 +1,29 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "recrawl")
+public class RecrawlProperties {
+    private boolean enabled = false;
+
+    /**
+     * Pages revisited per minute across all sites.
+     */
+    private int fetchesPerMinute = 60;
+    private long tick = 10;
+    private int threads = 2;
+
+    /**
+     * Probability that a page has changed by the time it is revisited.
+     */
+    private double changeProbability = 0.5;
+    private Duration initialInterval = Duration.ofDays(1);
+    private Duration minInterval = Duration.ofHours(1);
+    private Duration maxInterval = Duration.ofDays(30);
+}
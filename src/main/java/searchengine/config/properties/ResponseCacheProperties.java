@@ -0,0 +1,13 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+    private int maxEntries = 500;
+    private int compressionThreshold = 1024;
+}
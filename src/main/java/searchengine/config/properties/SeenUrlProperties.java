@@ -0,0 +1,17 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "seen-urls")
+public class SeenUrlProperties {
+    private int expectedUrls = 100000;
+
+    /**
+     * Also keeps the seen URLs in a Redis set, for crawls shared by several nodes.
+     */
+    private boolean redis = false;
+}
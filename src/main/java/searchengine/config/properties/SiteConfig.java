@@ -3,10 +3,18 @@ package searchengine.config.properties;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
+
 @Setter
 @Getter
 public class SiteConfig {
     private String url;
     private String name;
     private String language;
+    private Integer maxConcurrency;
+    private Long maxBodySize;
+    private Integer maxPages;
+    private Integer maxDepth;
+    private Long maxBytes;
+    private Duration maxWallTime;
 }
@@ -0,0 +1,15 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "static-rank")
+public class StaticRankProperties {
+    private double damping = 0.85;
+    private int maxIterations = 30;
+    private double tolerance = 1e-6;
+    private double weight = 0.5;
+}
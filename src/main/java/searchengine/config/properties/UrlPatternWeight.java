@@ -0,0 +1,11 @@
+package searchengine.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class UrlPatternWeight {
+    private String pattern;
+    private double weight;
+}
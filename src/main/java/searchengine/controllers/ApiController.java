@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.validator.constraints.URL;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,21 +14,24 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import searchengine.annotations.AvailablePage;
+import searchengine.dto.EncodedResponse;
 import searchengine.dto.PageData;
-import searchengine.dto.SearchResponse;
+import searchengine.dto.metrics.IndexingMetricsResponse;
 import searchengine.dto.statistics.DefaultResponse;
 import searchengine.dto.statistics.ErrorResponse;
-import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.exceptions.IndexingException;
 import searchengine.exceptions.NotIndexingException;
-import searchengine.model.Site;
 import searchengine.services.interfaces.IndexingService;
+import searchengine.services.interfaces.MetricsService;
 import searchengine.services.interfaces.SearchService;
 import searchengine.services.interfaces.SiteService;
 import searchengine.services.interfaces.StatisticsService;
+import searchengine.services.utils.EncodedResponseCache;
+import searchengine.services.utils.QueryLog;
 
-import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 @RestController
@@ -38,16 +43,30 @@ public class ApiController {
     private final IndexingService indexingService;
     private final SearchService searchService;
     private final SiteService siteService;
+    private final MetricsService metricsService;
+    private final EncodedResponseCache responseCache;
+    private final QueryLog queryLog;
 
     @GetMapping("/statistics")
-    public ResponseEntity<StatisticsResponse> statistics() {
-        return ResponseEntity.ok(statisticsService.getStatistics());
+    public ResponseEntity<byte[]> statistics(WebRequest webRequest) {
+        // statistics keep changing while indexing is in progress, so they are encoded on each request
+        EncodedResponse response = indexingService.isIndexing()
+                ? responseCache.encode(statisticsService.getStatistics())
+                : responseCache.get("statistics", statisticsService::getStatistics);
+
+        return encodedResponse(response, webRequest);
+    }
+
+    @GetMapping("/indexingMetrics")
+    public ResponseEntity<IndexingMetricsResponse> indexingMetrics() {
+        return ResponseEntity.ok(metricsService.getIndexingMetrics());
     }
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<DefaultResponse> startIndexing() {
+    public ResponseEntity<DefaultResponse> startIndexing(@RequestParam(required = false) boolean incremental,
+                                                         @RequestParam(required = false) boolean resume) {
         throwIfIndexing();
-        indexingService.startIndexing();
+        indexingService.startIndexing(incremental, resume);
         return defaultResponse();
     }
 
@@ -70,7 +89,8 @@ public class ApiController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> search(
+    public ResponseEntity<byte[]> search(
+            WebRequest webRequest,
             @RequestParam @NotEmpty(message = "Задан пустой поисковой запрос") String query,
             @RequestParam(name = "site", required = false) @URL(
                     regexp = "^http(s)?://[-A-Za-z0-9.]+",
@@ -79,13 +99,75 @@ public class ApiController {
             @RequestParam(required = false, defaultValue = "0") @PositiveOrZero(message = "Значение offset должно быть больше или равно 0") Integer offset,
             @RequestParam(required = false, defaultValue = "20") @PositiveOrZero(message = "Значение limit должно быть больше или равно 0") Integer limit) {
 
-        List<Site> sites = siteService.getAllSites()
-                .stream()
-                .filter(site -> mainUrl == null || site.getUrl().equals(mainUrl))
-                .toList();
+        String normalizedQuery = QueryLog.normalize(query);
+        queryLog.record(normalizedQuery, mainUrl);
+
+        String key = "search:" + mainUrl + ":" + offset + ":" + limit + ":" + normalizedQuery;
+
+        EncodedResponse response = responseCache.get(key, () -> searchService.search(
+                normalizedQuery,
+                siteService.getSitesByUrl(mainUrl),
+                offset,
+                limit));
+
+        return encodedResponse(response, webRequest);
+    }
+
+    private ResponseEntity<byte[]> encodedResponse(EncodedResponse response, WebRequest webRequest) {
+        boolean gzip = response.isCompressed() && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? response.getGzipEtag() : response.getEtag();
+
+        if (webRequest.checkNotModified(etag))
+            return null;
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip)
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        return builder.body(gzip ? response.getGzip() : response.getJson());
+    }
+
+    /**
+     * Gzip is acceptable when it is listed, or covered by {@code *}, with a non-zero q-value.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        Double gzip = null;
+        Double any = null;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+
+            for (int i = 1; i < params.length; i++) {
+                String[] param = params[i].split("=", 2);
+                if (param.length == 2 && param[0].trim().equalsIgnoreCase("q"))
+                    q = qValue(param[1].trim());
+            }
+
+            if (name.equals("gzip") || name.equals("x-gzip"))
+                gzip = q;
+            else if (name.equals("*"))
+                any = q;
+        }
+
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
 
-        SearchResponse searchResponse = searchService.search(query, sites, offset, limit);
-        return new ResponseEntity<>(searchResponse, HttpStatus.OK);
+    private static double qValue(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return 0.0;
+        }
     }
 
     private ResponseEntity<DefaultResponse> defaultResponse() {
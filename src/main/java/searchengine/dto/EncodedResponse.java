@@ -0,0 +1,24 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EncodedResponse {
+    private final long generation;
+    private final String etag;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    public boolean isCompressed() {
+        return gzip != null;
+    }
+
+    /**
+     * A strong validator differs between content codings, so the gzip body has a tag of its own.
+     */
+    public String getGzipEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+}
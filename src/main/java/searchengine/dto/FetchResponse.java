@@ -0,0 +1,38 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+
+@Getter
+@AllArgsConstructor
+public class FetchResponse {
+    private final URI uri;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    /**
+     * The body was not read because of its type or size.
+     */
+    private final boolean skipped;
+
+    public FetchResponse(URI uri, int statusCode, HttpHeaders headers, byte[] body) {
+        this(uri, statusCode, headers, body, false);
+    }
+
+    public String getContentType() {
+        return headers.firstValue("Content-Type").orElse("");
+    }
+
+    public String getCharset() {
+        for (String parameter : getContentType().split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].equalsIgnoreCase("charset"))
+                return pair[1].replace("\"", "").trim();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LoggedQuery {
+    private String query;
+    private String site;
+    private long frequency;
+}
@@ -0,0 +1,22 @@
+package searchengine.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * What the indexing stages need from an HTML document, taken in one pass over it.
+ * The document can be dropped as soon as the extract is built.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+public class PageExtract {
+    private final String title;
+    private final String text;
+    private final List<String> links;
+    private final String canonicalUrl;
+    private String[] words;
+}
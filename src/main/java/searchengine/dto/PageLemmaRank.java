@@ -0,0 +1,12 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PageLemmaRank {
+    private Integer pageId;
+    private String lemma;
+    private Float rank;
+}
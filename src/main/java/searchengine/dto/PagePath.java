@@ -0,0 +1,11 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PagePath {
+    private Integer id;
+    private String path;
+}
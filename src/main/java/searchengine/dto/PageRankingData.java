@@ -0,0 +1,13 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PageRankingData {
+    private Integer id;
+    private Integer length;
+    private Integer siteId;
+    private Float staticRank;
+}
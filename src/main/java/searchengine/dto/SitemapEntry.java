@@ -0,0 +1,13 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class SitemapEntry {
+    private final String url;
+    private final Instant lastModified;
+}
@@ -0,0 +1,20 @@
+package searchengine.dto.metrics;
+
+import lombok.Data;
+
+@Data
+public class HostMetricsItem {
+    private String host;
+    private long requests;
+    private long errors;
+    private long retries;
+    private long rejected;
+    private boolean circuitOpen;
+    private long savedFetches;
+    private long skipped;
+    private long skippedBytes;
+    private long bytes;
+    private double averageLatency;
+    private double maxLatency;
+    private int connectionLimit;
+}
@@ -0,0 +1,16 @@
+package searchengine.dto.metrics;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IndexingMetricsResponse {
+    private boolean result;
+    private long savedFetches;
+    private long skippedBytes;
+    private List<HostMetricsItem> hosts;
+    private int redisActiveConnections;
+    private int redisIdleConnections;
+    private List<RedisCommandItem> redisCommands;
+}
@@ -0,0 +1,12 @@
+package searchengine.dto.metrics;
+
+import lombok.Data;
+
+@Data
+public class RedisCommandItem {
+    private String command;
+    private long calls;
+    private long errors;
+    private double averageLatency;
+    private double maxLatency;
+}
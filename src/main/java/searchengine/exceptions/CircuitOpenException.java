@@ -0,0 +1,13 @@
+package searchengine.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request to a host whose circuit is open. It is an {@link IOException},
+ * so callers treat it like the failures that opened the circuit.
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(String host) {
+        super("Circuit of host <" + host + "> is open");
+    }
+}
@@ -0,0 +1,7 @@
+package searchengine.exceptions;
+
+public class ResponseTooLargeException extends RuntimeException {
+    public ResponseTooLargeException(String url, long maxBodySize) {
+        super("Response of <" + url + "> is larger than " + maxBodySize + " bytes");
+    }
+}
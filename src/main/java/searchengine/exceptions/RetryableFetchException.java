@@ -0,0 +1,20 @@
+package searchengine.exceptions;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown instead of waiting for another attempt of a transient failure: the caller sends the request again
+ * once {@code retryDelay} has passed, without holding a thread meanwhile.
+ */
+@Getter
+public class RetryableFetchException extends IOException {
+    private final Duration retryDelay;
+
+    public RetryableFetchException(String url, String reason, Duration retryDelay) {
+        super("Fetch of <" + url + "> failed transiently (" + reason + "), retry in " + retryDelay.toMillis() + " ms");
+        this.retryDelay = retryDelay;
+    }
+}
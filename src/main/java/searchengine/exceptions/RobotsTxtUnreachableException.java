@@ -0,0 +1,7 @@
+package searchengine.exceptions;
+
+public class RobotsTxtUnreachableException extends RuntimeException {
+    public RobotsTxtUnreachableException(String site) {
+        super("robots.txt of <" + site + "> is unreachable, the site is not crawled");
+    }
+}
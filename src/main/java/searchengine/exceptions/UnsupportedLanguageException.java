@@ -0,0 +1,7 @@
+package searchengine.exceptions;
+
+public class UnsupportedLanguageException extends RuntimeException {
+    public UnsupportedLanguageException(String language) {
+        super("Language <" + language + "> is not supported");
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "crawl_checkpoint")
+@Getter
+@Setter
+public class CrawlCheckpoint {
+    @Id
+    @Column(name = "site_id")
+    private Integer siteId;
+
+    @Column(nullable = false)
+    private Integer generation;
+
+    @Column(name = "saved_time", columnDefinition = "TIMESTAMP", nullable = false)
+    private LocalDateTime savedTime;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] frontier;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] seen;
+
+    @Column(name = "link_graph", columnDefinition = "BYTEA")
+    private byte[] linkGraph;
+}
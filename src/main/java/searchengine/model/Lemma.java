@@ -7,7 +7,8 @@ import lombok.Setter;
 import java.util.List;
 
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma", uniqueConstraints = {
+        @UniqueConstraint(name = "site_lemma_generation", columnNames = {"site_id", "lemma", "generation"})})
 @Getter
 @Setter
 public class Lemma {
@@ -24,6 +25,9 @@ public class Lemma {
     @Column(nullable = false)
     private Integer frequency;
 
+    @Column(columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer generation = 0;
+
     @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.REMOVE, mappedBy = "lemma")
     private List<Index> indexes;
 
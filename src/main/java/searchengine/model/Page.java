@@ -5,9 +5,14 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.http.HttpStatus;
+import searchengine.dto.PageExtract;
+
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "page", indexes = {@Index(name = "path_index", columnList = "path")})
+@Table(name = "page", indexes = {
+        @Index(name = "path_index", columnList = "path"),
+        @Index(name = "next_visit_index", columnList = "next_visit")})
 @Getter
 @Setter
 public class Page {
@@ -30,4 +35,53 @@ public class Page {
 
     @Column(nullable = false)
     private Integer length;
+
+    @Column(columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer generation = 0;
+
+    @Column(name = "static_rank")
+    private Float staticRank;
+
+    private String etag;
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    private Long fingerprint;
+
+    /**
+     * Path of the page this one nearly duplicates, such pages are not lemmatized.
+     */
+    @Column(name = "duplicate_of", columnDefinition = "VARCHAR(1000)")
+    private String duplicateOf;
+
+    @Column(name = "last_visit")
+    private LocalDateTime lastVisit;
+
+    /**
+     * Time the recrawl scheduler revisits the page, {@code null} until it has been revisited once.
+     */
+    @Column(name = "next_visit")
+    private LocalDateTime nextVisit;
+
+    /**
+     * Revisits of the page, those that found its content changed and the seconds they covered.
+     */
+    @Column(name = "visit_count")
+    private Integer visitCount;
+
+    @Column(name = "change_count")
+    private Integer changeCount;
+
+    @Column(name = "observed_seconds")
+    private Long observedSeconds;
+
+    /**
+     * Extract of the fetched content, lemmatization reads it instead of parsing the content again.
+     */
+    @Transient
+    private PageExtract extract;
 }
@@ -35,6 +35,18 @@ public class Site implements Comparable<Site> {
     @Column(columnDefinition = "VARCHAR(32)", nullable = false)
     private String language;
 
+    /**
+     * Generation of pages and lemmas visible to search.
+     */
+    @Column(columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer generation = 0;
+
+    /**
+     * Generation of the latest full rebuild, it goes live only when the rebuild succeeds.
+     */
+    @Column(name = "build_generation", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer buildGeneration = 0;
+
     @OneToMany(mappedBy = "site", fetch = FetchType.LAZY, cascade = CascadeType.REMOVE)
     private List<Page> pages;
 
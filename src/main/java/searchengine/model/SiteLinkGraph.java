@@ -0,0 +1,24 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "link_graph")
+@Getter
+@Setter
+public class SiteLinkGraph {
+    @Id
+    @Column(name = "site_id")
+    private Integer siteId;
+
+    @Column(nullable = false)
+    private Integer nodes;
+
+    @Column(nullable = false)
+    private Integer links;
+
+    @Column(columnDefinition = "BYTEA", nullable = false)
+    private byte[] data;
+}
@@ -5,20 +5,21 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import searchengine.dto.PageLemmaRank;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 
 @Repository
 public interface IndexRepository extends JpaRepository<Index, Integer> {
-    @Query("FROM Index i " +
+    @Query("SELECT new searchengine.dto.PageLemmaRank(i.page.id, l.lemma, i.rank) FROM Index i " +
             "JOIN Lemma l ON i.lemma = l " +
-            "WHERE i.page = ?1 AND l.lemma = ?2")
-    Optional<Index> findByPageAndLemma(Page page, String lemma);
+            "WHERE i.page.id IN (?1) AND l.lemma IN (?2)")
+    List<PageLemmaRank> findRanksByPageIdInAndLemmaIn(Collection<Integer> pageIds, Collection<String> lemmas);
 
     @Transactional
     @Modifying
@@ -2,8 +2,10 @@ package searchengine.repositories;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Site;
@@ -15,13 +17,47 @@ import java.util.List;
 public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
     int countBySite(Site site);
 
-    List<Lemma> findAllByLemmaIn(Collection<String> values);
+    int countBySiteAndGeneration(Site site, Integer generation);
+
+    @Query("SELECT COUNT(l) FROM Lemma l WHERE l.site = ?1 AND l.generation = l.site.generation")
+    int countLiveBySite(Site site);
+
+    List<Lemma> findAllBySiteAndGenerationAndLemmaIn(Site site, Integer generation, Collection<String> values);
+
+    @Query("FROM Lemma l WHERE l.lemma IN (?1) AND l.generation = l.site.generation")
+    List<Lemma> findAllLiveByLemmaIn(Collection<String> values);
+
+    @Query("FROM Lemma l WHERE l.generation = l.site.generation")
+    List<Lemma> findAllLive();
 
     List<Lemma> findAllBySite(Site site, Pageable pageable);
 
+    List<Lemma> findAllBySiteAndGeneration(Site site, Integer generation, Pageable pageable);
+
+    @Query("SELECT DISTINCT l.generation FROM Lemma l WHERE l.site = ?1")
+    List<Integer> findGenerationsBySite(Site site);
+
     @Query("FROM Lemma l " +
             "JOIN Index i ON i.lemma = l " +
             "JOIN Page p ON i.page = p " +
             "WHERE p = ?1")
     List<Lemma> findAllByPage(Page page);
+
+    /**
+     * @return number of lemmas incremented, those deleted meanwhile are not
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Lemma l SET l.frequency = l.frequency + 1 WHERE l.id IN (?1)")
+    int incrementFrequency(Collection<Integer> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Lemma l SET l.frequency = l.frequency - 1 WHERE l.id IN (?1)")
+    void decrementFrequency(Collection<Integer> ids);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Lemma l WHERE l.id IN (?1) AND l.frequency <= 0")
+    void deleteUnusedByIdIn(Collection<Integer> ids);
 }
@@ -4,25 +4,58 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import searchengine.dto.PagePath;
+import searchengine.dto.PageRankingData;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PageRepository extends JpaRepository<Page, Integer> {
     int countBySite(Site site);
 
-    Page findBySiteAndPath(Site site, String path);
+    int countBySiteAndGeneration(Site site, Integer generation);
+
+    @Query("SELECT COUNT(p) FROM Page p WHERE p.site = ?1 AND p.generation = p.site.generation")
+    int countLiveBySite(Site site);
+
+    @Query("FROM Page p WHERE p.site = ?1 AND p.path = ?2 AND p.generation = p.site.generation")
+    Page findLiveBySiteAndPath(Site site, String path);
 
     List<Page> findAllBySite(Site site, Pageable pageable);
 
-    @Query("SELECT DISTINCT p FROM Page p " +
+    List<Page> findAllBySiteAndGeneration(Site site, Integer generation, Pageable pageable);
+
+    @Query("SELECT DISTINCT p.generation FROM Page p WHERE p.site = ?1")
+    List<Integer> findGenerationsBySite(Site site);
+
+    @Query("SELECT DISTINCT new searchengine.dto.PageRankingData(p.id, p.length, p.site.id, p.staticRank) FROM Page p " +
             "JOIN Index i ON i.page = p " +
             "JOIN Lemma l ON i.lemma = l " +
-            "WHERE l.lemma = ?1 AND p.site IN (?2)")
-    List<Page> findAllByLemmaAndSiteIn(String lemma, List<Site> sites);
+            "WHERE l.lemma = ?1 AND p.site IN (?2) AND p.generation = p.site.generation " +
+            "ORDER BY p.staticRank DESC NULLS LAST")
+    List<PageRankingData> findRankingDataByLemmaAndSiteIn(String lemma, List<Site> sites);
+
+    @Query("SELECT new searchengine.dto.PagePath(p.id, p.path) FROM Page p WHERE p.site = ?1 AND p.generation = p.site.generation")
+    List<PagePath> findAllPathsBySite(Site site);
+
+    @Query("SELECT new searchengine.dto.PagePath(p.id, p.path) FROM Page p WHERE p.site = ?1 AND p.generation = ?2")
+    List<PagePath> findAllPathsBySiteAndGeneration(Site site, Integer generation);
+
+    @Query("FROM Page p JOIN FETCH p.site WHERE p.id IN (?1)")
+    List<Page> findAllWithSiteByIdIn(Collection<Integer> ids);
+
+    /**
+     * Live pages whose revisit is due, pages never revisited are due once they were fetched before {@code fetchedBefore}.
+     */
+    @Query("FROM Page p JOIN FETCH p.site WHERE p.generation = p.site.generation " +
+            "AND (p.nextVisit <= ?1 OR (p.nextVisit IS NULL AND (p.lastVisit IS NULL OR p.lastVisit <= ?2))) " +
+            "ORDER BY p.nextVisit ASC NULLS LAST")
+    List<Page> findDueForRevisit(LocalDateTime now, LocalDateTime fetchedBefore, Pageable pageable);
 
-    @Query("SELECT AVG(p.length) FROM Page p")
+    @Query("SELECT AVG(p.length) FROM Page p WHERE p.generation = p.site.generation")
     Double getAverageLength();
 }
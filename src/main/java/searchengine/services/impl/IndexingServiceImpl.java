@@ -6,21 +6,36 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import redis.clients.jedis.Jedis;
-import searchengine.config.properties.LemmaProperties;
+import searchengine.config.properties.DistributedProperties;
+import searchengine.config.properties.IndexingProperties;
+import searchengine.config.properties.NearDuplicateProperties;
 import searchengine.config.properties.SiteConfig;
 import searchengine.dto.PageData;
-import searchengine.model.Page;
+import searchengine.dto.PagePath;
+import searchengine.model.CrawlCheckpoint;
 import searchengine.model.Site;
 import searchengine.model.Status;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 import searchengine.services.interfaces.IndexingService;
+import searchengine.services.interfaces.SearchService;
 import searchengine.services.interfaces.SiteService;
+import searchengine.services.utils.CacheWarmer;
+import searchengine.services.utils.CrawlCheckpointer;
+import searchengine.services.utils.CrawlBudget;
+import searchengine.services.utils.CrawlCoordinator;
 import searchengine.services.utils.DataCleaner;
+import searchengine.services.utils.IndexGeneration;
+import searchengine.services.utils.LinkGraph;
+import searchengine.services.utils.MorphologyRegistry;
+import searchengine.services.utils.NearDuplicateIndex;
+import searchengine.services.utils.PageIndexer;
 import searchengine.services.utils.PageIntrospect;
+import searchengine.services.utils.PageWriter;
 import searchengine.services.utils.PropertiesUtil;
-import searchengine.services.utils.RecursiveWebParser;
+import searchengine.services.utils.SiteCrawler;
+import searchengine.services.utils.StaticRankCalculator;
+import searchengine.services.utils.UrlCanonicalizer;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -32,43 +47,73 @@ import java.util.stream.Collectors;
 public class IndexingServiceImpl implements IndexingService {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexingServiceImpl.class);
 
-    private final Queue<Page> pageQueue;
     private final SiteService siteService;
     private final DataCleaner dataCleaner;
     private final PropertiesUtil propertiesUtil;
     private final ApplicationContext applicationContext;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaProperties lemmaProperties;
-
-    private final Map<Site, ForkJoinPool> indexingSites =
+    private final PageWriter pageWriter;
+    private final PageIndexer pageIndexer;
+    private final IndexingProperties indexingProperties;
+    private final IndexGeneration indexGeneration;
+    private final SearchService searchService;
+    private final CacheWarmer cacheWarmer;
+    private final StaticRankCalculator staticRankCalculator;
+    private final MorphologyRegistry morphologyRegistry;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final NearDuplicateProperties nearDuplicateProperties;
+    private final CrawlCheckpointer crawlCheckpointer;
+    private final CrawlCoordinator crawlCoordinator;
+    private final DistributedProperties distributedProperties;
+
+    private final Map<Site, SiteCrawler> indexingSites =
+            Collections.synchronizedMap(new HashMap<>());
+    private final Map<Site, LinkGraph> linkGraphs =
             Collections.synchronizedMap(new HashMap<>());
     private final AtomicBoolean isIndexing = new AtomicBoolean();
 
     private ExecutorService deleteExecutor;
     private ExecutorService pageExecutor;
+    private ExecutorService crawlExecutor;
+    private CrawlBudget crawlBudget;
 
     @Async
     @Override
-    public void startIndexing() {
+    public void startIndexing(boolean incrementalRequested, boolean resumeRequested) {
         isIndexing.set(true);
 
-        List<SiteConfig> sites = propertiesUtil.getSitesInConfig(lemmaProperties.getLanguage());
-        sites.forEach(this::putSiteToIndex);
+        // the nodes of a distributed crawl only build new generations
+        boolean distributed = distributedProperties.isEnabled();
+        boolean incremental = incrementalRequested && !distributed;
+        boolean resume = resumeRequested && !distributed;
+        if (distributed && (incrementalRequested || resumeRequested))
+            LOGGER.warn("Distributed indexing always rebuilds the sites, incremental and resumed indexing are ignored");
+
+        List<SiteConfig> sites = propertiesUtil.getSitesInConfig();
+        morphologyRegistry.preload(sites.stream().map(SiteConfig::getLanguage).toList());
+
+        // all sites share one pool of fetch and parse threads
+        crawlExecutor = applicationContext.getBean("crawlExecutor", ExecutorService.class);
+        crawlBudget = new CrawlBudget(indexingProperties.getCrawlThreads());
+        sites.forEach(site -> putSiteToIndex(site, incremental, resume));
 
         String siteNames = sites.stream().map(SiteConfig::getName).collect(Collectors.joining(", "));
-        LOGGER.info("Start indexing: " + siteNames);
+        LOGGER.info("Start " + (incremental ? "incremental " : resume ? "resumed " : "") + "indexing: " + siteNames);
 
         if (!awaitDataDeleting()) {
+            crawlExecutor.shutdownNow();
             flushAndClearResources();
             isIndexing.set(false);
             return;
         }
+        if (incremental) {
+            indexingSites.forEach((site, crawler) -> crawler.setKnownPages(knownPages(site)));
+        }
+        indexChanged();
 
         try {
-            for (Map.Entry<Site, ForkJoinPool> entry: indexingSites.entrySet()) {
-                awaitSiteIndexing(entry.getKey(), entry.getValue());
-            }
+            awaitSitesIndexing(incremental);
             if (indexingSites.keySet().stream().allMatch(site -> site.getStatus() == Status.INDEXED)) {
                 LOGGER.info("End indexing: " + siteNames);
             }
@@ -76,8 +121,14 @@ public class IndexingServiceImpl implements IndexingService {
             indexingSites.keySet().forEach(site -> failedSiteIfIndexing(site, ex.getMessage()));
             LOGGER.error("Indexing FAILED", ex);
         } finally {
+            shutdownCrawlExecutor();
+            flushPages();
+            if (!incremental)
+                collectAbandonedGenerations();
             flushAndClearResources();
+            indexChanged();
             isIndexing.set(false);
+            cacheWarmer.warmUp();
         }
     }
 
@@ -98,11 +149,11 @@ public class IndexingServiceImpl implements IndexingService {
             if (deleteExecutor != null) {
                 shutdownNowAndAwait(deleteExecutor);
             } else {
-                Jedis jedis = applicationContext.getBean(Jedis.class);
-                indexingSites.forEach((site, pool) -> {
+                indexingSites.forEach((site, crawler) -> {
                     try {
-                        shutdownNowAndAwait(pool);
-                        jedis.del(site.getName());
+                        if (distributedProperties.isEnabled())
+                            crawlCoordinator.stop(site);
+                        crawler.stop();
                     } catch (InterruptedException ex) {
                         failedSiteIfIndexing(site, ex.getMessage());
                         LOGGER.error("Exception is thrown", ex);
@@ -122,16 +173,18 @@ public class IndexingServiceImpl implements IndexingService {
     @Async
     @Override
     public void indexPage(PageData pageData) {
-        isIndexing.set(true);
+        String pageUrl = getUrl(pageData);
+        // the host variant of the configured site is preferred, not the one the caller typed
+        String mainUrl = propertiesUtil.getSiteConfig(new PageIntrospect(pageUrl).getMainUrl()).getUrl();
+        String url = urlCanonicalizer.canonicalize(pageUrl, mainUrl);
 
-        String url = getUrl(pageData);
+        isIndexing.set(true);
         LOGGER.info("Start indexing page: " + url);
 
         PageIntrospect pageIntrospect = new PageIntrospect(url);
-        RecursiveWebParser recursiveWebParser = createRecursiveWebParser(pageIntrospect);
 
         pageExecutor = applicationContext.getBean(ThreadPoolExecutor.class);
-        Future<Void> future = pageExecutor.submit(recursiveWebParser.pageIndexingCallable());
+        Future<Void> future = pageExecutor.submit(pageIndexer.pageIndexingCallable(pageIntrospect));
 
         try {
             future.get();
@@ -144,38 +197,76 @@ public class IndexingServiceImpl implements IndexingService {
             LOGGER.info("End indexing page: " + url);
         }
 
+        indexChanged();
         isIndexing.set(false);
+        cacheWarmer.warmUp();
     }
 
-    private void awaitSiteIndexing(Site site, ForkJoinPool pool) {
+    /**
+     * Crawls the sites concurrently, every site completes or fails on its own.
+     */
+    private void awaitSitesIndexing(boolean incremental) {
+        ExecutorService siteExecutor = applicationContext.getBean("siteExecutor", ExecutorService.class);
+
+        try {
+            CompletableFuture<?>[] crawls = new HashMap<>(indexingSites).entrySet()
+                    .stream()
+                    .map(entry -> CompletableFuture.runAsync(
+                            () -> awaitSiteIndexing(entry.getKey(), entry.getValue(), incremental),
+                            siteExecutor))
+                    .toArray(CompletableFuture[]::new);
+
+            CompletableFuture.allOf(crawls).join();
+        } finally {
+            siteExecutor.shutdown();
+        }
+    }
+
+    private void awaitSiteIndexing(Site site, SiteCrawler crawler, boolean incremental) {
         String name = site.getName();
         String url = site.getUrl();
+        long start = System.currentTimeMillis();
 
-        PageIntrospect pageIntrospect = new PageIntrospect(name, url + "/");
-        pool.execute(createRecursiveWebParser(pageIntrospect, pool, site));
         try {
-            boolean isNotTimeout = pool.awaitTermination(5, TimeUnit.HOURS);
+            boolean isNotTimeout = distributedProperties.isEnabled()
+                    ? crawlCoordinator.crawl(site, site.getBuildGeneration(), linkGraphs.get(site), 5, TimeUnit.HOURS)
+                    : crawler.crawl(5, TimeUnit.HOURS);
 
             if (!isNotTimeout) {
-                shutdownNowAndAwait(pool);
-                failedSiteIfIndexing(site, "TIMEOUT");
+                crawler.stop();
+                failedSiteIfIndexing(site, lastError("TIMEOUT", crawler.getFailureSummary()));
                 LOGGER.warn("Site " + name + "[" + url + "] indexing TIMEOUT");
             } else if (site.getStatus() == Status.INDEXING) {
-                site.setLastError(null);
-                site.setStatus(Status.INDEXED);
-                siteRepository.save(site);
-                LOGGER.debug("Site " + name + "[" + url + "] has been indexed");
+                // a spent budget ends the crawl as complete, the note tells which one
+                String note = lastError(
+                        crawler.getBudgetNote() == null ? null : "Budget reached: " + crawler.getBudgetNote(),
+                        crawler.getFailureSummary());
+                flushPages();
+                if (incremental) {
+                    staticRankCalculator.rankPages(site, site.getGeneration(), linkGraphs.get(site));
+                    site.setLastError(note);
+                    site.setStatus(Status.INDEXED);
+                    siteRepository.save(site);
+                    // the live pages got new ranks, responses cached with the old ones are stale
+                    indexChanged();
+                } else {
+                    // searches never see the new generation without its ranks
+                    staticRankCalculator.rankPages(site, site.getBuildGeneration(), linkGraphs.get(site));
+                    switchGeneration(site, note);
+                }
+                LOGGER.info("Site " + name + "[" + url + "] has been indexed in "
+                        + (System.currentTimeMillis() - start) / 1000 + " s");
             }
-        } catch (InterruptedException ex) {
+        } catch (InterruptedException | RuntimeException ex) {
             failedSiteIfIndexing(site, ex.getMessage());
-            LOGGER.error("Exception is thrown", ex);
+            LOGGER.error("Site " + name + "[" + url + "] indexing FAILED", ex);
         }
     }
 
     private boolean awaitDataDeleting() {
         try {
             deleteExecutor = applicationContext.getBean(ThreadPoolExecutor.class);
-            List<SiteConfig> sites = propertiesUtil.getSitesInConfig(lemmaProperties.getLanguage());
+            List<SiteConfig> sites = propertiesUtil.getSitesInConfig();
 
             if (!dataCleaner.deleteOldData(deleteExecutor, sites)) {
                 LOGGER.warn("Old data hasn't been deleted");
@@ -200,19 +291,27 @@ public class IndexingServiceImpl implements IndexingService {
         pool.awaitTermination(1, TimeUnit.MINUTES);
     }
 
-    private RecursiveWebParser createRecursiveWebParser(PageIntrospect pageIntrospect) {
-        Site site = propertiesUtil.getSiteByUrlInConfig(pageIntrospect.getMainUrl());
-        return createRecursiveWebParser(pageIntrospect, null, site);
-    }
+    private SiteCrawler createSiteCrawler(Site site, LinkGraph linkGraph) {
+        SiteCrawler crawler = applicationContext.getBean(SiteCrawler.class);
 
-    private RecursiveWebParser createRecursiveWebParser(PageIntrospect pageIntrospect, ForkJoinPool pool, Site site) {
-        RecursiveWebParser parser = applicationContext.getBean(RecursiveWebParser.class);
+        crawler.setSite(site);
+        crawler.setLinkGraph(linkGraph);
+        crawler.setExecutor(crawlExecutor);
+        crawler.setCrawlBudget(crawlBudget);
+        if (nearDuplicateProperties.isEnabled())
+            crawler.setNearDuplicates(new NearDuplicateIndex(nearDuplicateProperties.getMaxDistance()));
 
-        parser.setSite(site);
-        parser.setPool(pool);
-        parser.setPage(pageIntrospect);
+        return crawler;
+    }
 
-        return parser;
+    /**
+     * @return the given notes that are not {@code null} joined, {@code null} if there are none
+     */
+    private String lastError(String... notes) {
+        String lastError = Arrays.stream(notes)
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining("; "));
+        return lastError.isEmpty() ? null : lastError;
     }
 
     private void failedSiteIfIndexing(Site site, String errorText) {
@@ -223,15 +322,78 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
-    private void putSiteToIndex(SiteConfig siteConfig) {
+    private void putSiteToIndex(SiteConfig siteConfig, boolean incremental, boolean resume) {
         String language = siteConfig.getLanguage();
         String name = siteConfig.getName();
         String url = siteConfig.getUrl();
 
         Site site = siteService.saveSite(name, url, language, null, Status.INDEXING);
-        ForkJoinPool pool = applicationContext.getBean(ForkJoinPool.class);
+        CrawlCheckpoint checkpoint = !incremental && resume ? crawlCheckpointer.find(site).orElse(null) : null;
+        if (!incremental && checkpoint == null) {
+            // a full rebuild is written alongside the live generation
+            crawlCheckpointer.delete(site);
+            site.setBuildGeneration(site.getBuildGeneration() + 1);
+            siteRepository.save(site);
+        }
+
+        // an incremental crawl updates the stored graph, pages it does not reach keep their links
+        LinkGraph linkGraph = checkpoint != null && checkpoint.getLinkGraph() != null
+                ? LinkGraph.fromBytes(checkpoint.getLinkGraph())
+                : incremental ? staticRankCalculator.loadGraph(site) : new LinkGraph();
+        SiteCrawler crawler = createSiteCrawler(site, linkGraph);
+        crawler.setMaxInFlight(indexingProperties.getMaxSiteConcurrency(siteConfig));
+        crawler.setMaxPages(indexingProperties.getMaxPages(siteConfig));
+        crawler.setMaxDepth(indexingProperties.getMaxDepth(siteConfig));
+        crawler.setMaxBytes(indexingProperties.getMaxBytes(siteConfig));
+        crawler.setMaxWallTime(indexingProperties.getMaxWallTime(siteConfig));
+        crawler.setGeneration(incremental ? site.getGeneration() : site.getBuildGeneration());
+        crawler.setCheckpointing(!incremental && !distributedProperties.isEnabled());
+        crawler.setSavingGraph(incremental);
+        crawler.setCheckpoint(checkpoint);
+
+        indexingSites.put(site, crawler);
+        linkGraphs.put(site, linkGraph);
+    }
+
+    private void switchGeneration(Site site, String note) {
+        // pages of the new generation may still be buffered
+        flushPages();
+
+        int oldGeneration = site.getGeneration();
+        site.setGeneration(site.getBuildGeneration());
+        site.setLastError(note);
+        site.setStatus(Status.INDEXED);
+        siteRepository.save(site);
+        crawlCheckpointer.delete(site);
+
+        indexChanged();
+        dataCleaner.collectGeneration(site, oldGeneration);
+    }
+
+    private void collectAbandonedGenerations() {
+        indexingSites.keySet()
+                .stream()
+                .filter(site -> !site.getGeneration().equals(site.getBuildGeneration()))
+                .filter(site -> crawlCheckpointer.find(site).isEmpty())
+                .forEach(site -> dataCleaner.collectGeneration(site, site.getBuildGeneration()));
+    }
 
-        indexingSites.put(site, pool);
+    private Map<String, Integer> knownPages(Site site) {
+        return pageRepository.findAllPathsBySite(site)
+                .stream()
+                .collect(Collectors.toMap(PagePath::getPath, PagePath::getId, (first, second) -> first));
+    }
+
+    private void shutdownCrawlExecutor() {
+        // fetches left by stopped crawlers are skipped when they start, so the pool drains quickly
+        crawlExecutor.shutdown();
+        try {
+            if (!crawlExecutor.awaitTermination(1, TimeUnit.MINUTES))
+                crawlExecutor.shutdownNow();
+        } catch (InterruptedException ex) {
+            crawlExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 
     private String getUrl(PageData pageData) {
@@ -241,10 +403,19 @@ public class IndexingServiceImpl implements IndexingService {
         return url;
     }
 
+    private void indexChanged() {
+        indexGeneration.next();
+        searchService.clearCache();
+    }
+
+    private void flushPages() {
+        pageWriter.flush();
+    }
+
     private void flushAndClearResources() {
-        pageRepository.saveAllAndFlush(pageQueue);
-        pageQueue.clear();
+        flushPages();
         indexingSites.clear();
+        linkGraphs.clear();
         LOGGER.debug("Resources are flushed and cleared");
     }
 }
@@ -1,9 +1,12 @@
 package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.lucene.morphology.LuceneMorphology;
 import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 import searchengine.config.properties.LemmaProperties;
 import searchengine.model.Index;
@@ -13,14 +16,20 @@ import searchengine.model.Site;
 import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.services.interfaces.LemmaService;
+import searchengine.services.utils.MorphologyRegistry;
 import searchengine.services.utils.SentenceUtil;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class LemmaServiceImpl implements LemmaService {
-    private final LuceneMorphology luceneMorphology;
+    private static final Logger LOGGER = LoggerFactory.getLogger(LemmaServiceImpl.class);
+    private static final int MAX_COUNT_ROUNDS = 5;
+
+    private final MorphologyRegistry morphologyRegistry;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
     private final LemmaProperties lemmaProperties;
@@ -33,61 +42,106 @@ public class LemmaServiceImpl implements LemmaService {
         if (String.valueOf(page.getCode()).startsWith("4||5"))
             return;
 
-        String clearHTML = Jsoup.parse(page.getContent()).text();
-        Map<String, Integer> lemmaData = collectLemmas(clearHTML);
+        String language = page.getSite().getLanguage();
+        String[] words = page.getExtract() != null && page.getExtract().getWords() != null
+                ? page.getExtract().getWords()
+                : SentenceUtil.splitToWords(Jsoup.parse(page.getContent()).text(), language);
+        Map<String, Integer> lemmaData = collectLemmas(words, language);
 
-        List<Lemma> lemmas = lemmaRepository.findAllByLemmaIn(lemmaData.keySet());
+        Map<String, Lemma> lemmas = countLemmas(page.getSite(), page.getGeneration(), lemmaData.keySet());
         Iterator<Map.Entry<String, Integer>> iterator = lemmaData.entrySet().iterator();
 
         Queue<Index> indexQueue = new LinkedList<>();
 
         while (iterator.hasNext() && !Thread.currentThread().isInterrupted()) {
             Map.Entry<String, Integer> entry = iterator.next();
-            saveLemma(entry, lemmas, indexQueue, page);
+
+            Index index = new Index();
+            index.setLemma(lemmas.get(entry.getKey()));
+            index.setPage(page);
+            index.setRank(Float.valueOf(entry.getValue()));
+            indexQueue.add(index);
             insertIndexesIfCountIsMoreThan(indexQueue, batchSize);
         }
 
         indexRepository.saveAllAndFlush(indexQueue);
     }
 
-    private void saveLemma(
-            Map.Entry<String, Integer> lemmaData,
-            List<Lemma> existingLemmas,
-            Queue<Index> indexQueue,
-            Page page) {
+    /**
+     * Counts a page in the frequency of each lemma. Several crawlers may lemmatize pages of a site at once,
+     * so the frequency of stored lemmas is incremented by the database and new lemmas are inserted
+     * behind the unique key of site, lemma and generation. Lemmas another crawler has inserted
+     * or deleted meanwhile are counted again on the next round.
+     */
+    private Map<String, Lemma> countLemmas(Site site, Integer generation, Set<String> values) {
+        Map<String, Lemma> counted = new HashMap<>();
+        Set<String> remaining = new HashSet<>(values);
+
+        for (int round = 1; !remaining.isEmpty(); round++) {
+            try {
+                countStoredLemmas(site, generation, remaining, counted);
+                insertNewLemmas(site, generation, remaining, counted);
+            } catch (DataIntegrityViolationException | PessimisticLockingFailureException ex) {
+                if (round == MAX_COUNT_ROUNDS)
+                    throw ex;
+                // the whole statement is rolled back, the lemmas it covered stay remaining
+                LOGGER.debug("Lemmas of site " + site.getName() + " are counted again: " + ex.getMessage());
+            }
+        }
 
-        String lemmaValue = lemmaData.getKey();
-        Integer rank = lemmaData.getValue();
+        return counted;
+    }
 
-        Site site = page.getSite();
-        Lemma lemma = findExistingLemma(existingLemmas, lemmaValue, site.getUrl());
+    private void countStoredLemmas(Site site, Integer generation, Set<String> remaining, Map<String, Lemma> counted) {
+        List<Lemma> stored = lemmaRepository.findAllBySiteAndGenerationAndLemmaIn(site, generation, remaining);
+        if (stored.isEmpty())
+            return;
 
-        if (lemma == null) {
-            lemma = new Lemma();
-            lemma.setLemma(lemmaValue);
-            lemma.setSite(site);
+        List<Integer> ids = stored.stream().map(Lemma::getId).sorted().toList();
+        if (lemmaRepository.incrementFrequency(ids) < ids.size()) {
+            // some were deleted after they were found, only those still stored are incremented
+            stored = lemmaRepository.findAllById(ids);
         }
-        lemma.incrementFrequency();
-        lemmaRepository.save(lemma);
-
-        Index index = new Index();
-        index.setLemma(lemma);
-        index.setPage(page);
-        index.setRank(Float.valueOf(rank));
-        indexQueue.add(index);
+
+        stored.forEach(lemma -> {
+            counted.put(lemma.getLemma(), lemma);
+            remaining.remove(lemma.getLemma());
+        });
+    }
+
+    private void insertNewLemmas(Site site, Integer generation, Set<String> remaining, Map<String, Lemma> counted) {
+        if (remaining.isEmpty())
+            return;
+
+        List<Lemma> lemmas = remaining.stream()
+                .map(value -> {
+                    Lemma lemma = new Lemma();
+                    lemma.setLemma(value);
+                    lemma.setSite(site);
+                    lemma.setGeneration(generation);
+                    lemma.setFrequency(1);
+                    return lemma;
+                })
+                .toList();
+
+        lemmaRepository.saveAllAndFlush(lemmas).forEach(lemma -> counted.put(lemma.getLemma(), lemma));
+        remaining.clear();
     }
 
     @Override
-    public Map<String, Integer> collectLemmas(String text) {
+    public Map<String, Integer> collectLemmas(String text, String language) {
+        return collectLemmas(SentenceUtil.splitToWords(text, language), language);
+    }
+
+    private Map<String, Integer> collectLemmas(String[] words, String language) {
         Map<String, Integer> lemmas = new HashMap<>();
-        String[] words = SentenceUtil.splitToWords(text, lemmaProperties.getLanguage());
 
         for (String word : words) {
             try {
-                if (word.isBlank() || isParticle(word))
+                if (word.isBlank() || isParticle(word, language))
                     continue;
 
-                String firstNormalForm = getFirstNormalForm(word);
+                String firstNormalForm = getFirstNormalForm(word, language);
 
                 if (firstNormalForm.isBlank())
                     continue;
@@ -100,52 +154,61 @@ public class LemmaServiceImpl implements LemmaService {
         return lemmas;
     }
 
+    @Override
+    public Set<String> collectLemmas(String text, Collection<String> languages) {
+        List<CompletableFuture<Set<String>>> lemmas = languages.stream()
+                .distinct()
+                .map(language -> morphologyRegistry.load(language)
+                        .thenApplyAsync(morphology -> collectLemmas(text, language).keySet()))
+                .toList();
+
+        return lemmas.stream()
+                .flatMap(future -> future.join().stream())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Decrements the lemmas of the page in the database and deletes the index of the page,
+     * then the lemmas no page counts any more. A lemma counted again meanwhile is kept.
+     */
     @Override
     public void decrementLemmaFrequencyOrDelete(Page page) {
-        List<Lemma> lemmas = lemmaRepository.findAllByPage(page);
-        for (Lemma lemma : lemmas) {
-            int oldFrequency = lemma.getFrequency();
-            if (oldFrequency > 1) {
-                lemma.setFrequency(oldFrequency - 1);
-                lemmaRepository.save(lemma);
-            } else {
-                lemmaRepository.delete(lemma);
-            }
-        }
+        // lemmas are found through the index, so they go first
+        List<Integer> ids = lemmaRepository.findAllByPage(page)
+                .stream()
+                .map(Lemma::getId)
+                .sorted()
+                .toList();
+
+        if (!ids.isEmpty())
+            lemmaRepository.decrementFrequency(ids);
+        indexRepository.deleteAllByPage(page);
+        if (!ids.isEmpty())
+            lemmaRepository.deleteUnusedByIdIn(ids);
     }
 
     @Override
-    public String getFirstNormalForm(String word) {
+    public String getFirstNormalForm(String word, String language) {
         if (word.isBlank())
             return word;
 
-        List<String> normalForms = luceneMorphology.getNormalForms(word);
+        List<String> normalForms = morphologyRegistry.get(language).getNormalForms(word);
         if (normalForms.isEmpty()) {
             return "";
         }
 
         return normalForms.get(0);
     }
-    private Lemma findExistingLemma(Collection<Lemma> lemmas, String lemmaValue, String url) {
-        return lemmas.stream()
-                .filter(lemma1 -> {
-                    String lemmaSiteUrl = lemma1.getSite().getUrl();
-
-                    return lemma1.getLemma().equals(lemmaValue)
-                            && lemmaSiteUrl.equals(url);
-                })
-                .findAny().orElse(null);
-    }
 
-    private boolean isParticle(String word) {
-        List<String> wordBaseForms = luceneMorphology.getMorphInfo(word);
-        return wordBaseForms.stream().anyMatch(this::hasParticleProperty);
+    private boolean isParticle(String word, String language) {
+        List<String> wordBaseForms = morphologyRegistry.get(language).getMorphInfo(word);
+        return wordBaseForms.stream().anyMatch(wordBase -> hasParticleProperty(wordBase, language));
     }
 
-    private boolean hasParticleProperty(String wordBase) {
+    private boolean hasParticleProperty(String wordBase, String language) {
         wordBase = wordBase.toUpperCase();
 
-        List<String> particles = lemmaProperties.getLanguage().equals("russian") ?
+        List<String> particles = language.equals("russian") ?
                 lemmaProperties.getRussianParticles() :
                 lemmaProperties.getEnglishParticles();
 
@@ -0,0 +1,86 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import searchengine.dto.metrics.HostMetricsItem;
+import searchengine.dto.metrics.IndexingMetricsResponse;
+import searchengine.dto.metrics.RedisCommandItem;
+import searchengine.services.interfaces.MetricsService;
+import searchengine.services.utils.FetchMetrics;
+import searchengine.services.utils.HostCircuitBreaker;
+import searchengine.services.utils.HostScheduler;
+import searchengine.services.utils.RedisClient;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class MetricsServiceImpl implements MetricsService {
+    private final FetchMetrics fetchMetrics;
+    private final HostScheduler hostScheduler;
+    private final HostCircuitBreaker circuitBreaker;
+    private final RedisClient redisClient;
+
+    @Override
+    public IndexingMetricsResponse getIndexingMetrics() {
+        Map<String, Integer> connectionLimits = hostScheduler.getConnectionLimits();
+        Set<String> openHosts = circuitBreaker.getOpenHosts();
+
+        List<HostMetricsItem> hosts = fetchMetrics.getHosts()
+                .entrySet()
+                .stream()
+                .map(entry -> {
+                    FetchMetrics.HostMetrics metrics = entry.getValue();
+
+                    HostMetricsItem item = new HostMetricsItem();
+                    item.setHost(entry.getKey());
+                    item.setRequests(metrics.getRequests());
+                    item.setErrors(metrics.getErrors());
+                    item.setRetries(metrics.getRetries());
+                    item.setRejected(metrics.getRejected());
+                    item.setCircuitOpen(openHosts.contains(entry.getKey()));
+                    item.setSavedFetches(metrics.getSavedFetches());
+                    item.setSkipped(metrics.getSkipped());
+                    item.setSkippedBytes(metrics.getSkippedBytes());
+                    item.setBytes(metrics.getBytes());
+                    item.setAverageLatency(metrics.getAverageLatencyMillis());
+                    item.setMaxLatency(metrics.getMaxLatencyMillis());
+                    item.setConnectionLimit(connectionLimits.getOrDefault(entry.getKey(), 0));
+                    return item;
+                })
+                .sorted(Comparator.comparing(HostMetricsItem::getHost))
+                .toList();
+
+        IndexingMetricsResponse response = new IndexingMetricsResponse();
+        response.setResult(true);
+        response.setSavedFetches(hosts.stream().mapToLong(HostMetricsItem::getSavedFetches).sum());
+        response.setSkippedBytes(hosts.stream().mapToLong(HostMetricsItem::getSkippedBytes).sum());
+        response.setHosts(hosts);
+        response.setRedisActiveConnections(redisClient.getActiveConnections());
+        response.setRedisIdleConnections(redisClient.getIdleConnections());
+        response.setRedisCommands(redisCommands());
+        return response;
+    }
+
+    private List<RedisCommandItem> redisCommands() {
+        return redisClient.getCommandMetrics()
+                .entrySet()
+                .stream()
+                .map(entry -> {
+                    RedisClient.CommandMetrics metrics = entry.getValue();
+
+                    RedisCommandItem item = new RedisCommandItem();
+                    item.setCommand(entry.getKey());
+                    item.setCalls(metrics.getCalls());
+                    item.setErrors(metrics.getErrors());
+                    item.setAverageLatency(metrics.getAverageLatencyMillis());
+                    item.setMaxLatency(metrics.getMaxLatencyMillis());
+                    return item;
+                })
+                .sorted(Comparator.comparing(RedisCommandItem::getCommand))
+                .toList();
+    }
+}
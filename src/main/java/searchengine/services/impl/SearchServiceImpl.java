@@ -10,13 +10,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
-import redis.clients.jedis.Jedis;
+import searchengine.annotations.ReplicaRead;
 import searchengine.config.properties.BM25Properties;
 import searchengine.config.properties.LemmaProperties;
+import searchengine.config.properties.StaticRankProperties;
+import searchengine.dto.PageLemmaRank;
+import searchengine.dto.PageRankingData;
 import searchengine.dto.SearchResponse;
 import searchengine.dto.SentenceLemma;
 import searchengine.dto.SnippetItem;
-import searchengine.model.Index;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.Site;
@@ -26,6 +28,7 @@ import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 import searchengine.services.interfaces.SearchService;
 import searchengine.services.interfaces.SiteService;
+import searchengine.services.utils.RedisClient;
 import searchengine.services.utils.SentenceUtil;
 import searchengine.services.utils.Serializer;
 
@@ -37,6 +40,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SearchServiceImpl implements SearchService {
     private static final int LIMIT_SNIPPET_LENGTH = 300;
+    private static final int RANK_QUERY_CHUNK_SIZE = 1000;
     private static final Logger LOGGER = LoggerFactory.getLogger(SearchServiceImpl.class);
 
     private final LemmaProperties lemmaProperties;
@@ -45,13 +49,16 @@ public class SearchServiceImpl implements SearchService {
     private final PageRepository pageRepository;
     private final SiteRepository siteRepository;
     private final BM25Properties bm25Properties;
+    private final StaticRankProperties staticRankProperties;
     private final LemmaServiceImpl lemmaFinder;
     private final SiteService siteService;
-    private final Jedis jedis;
+    private final RedisClient redisClient;
 
-    private List<String> mostPopularLemmas;
-    private Double averagePageLength;
+    // reset by clearCache from the indexing threads, so each search reads them once
+    private volatile List<String> mostPopularLemmas;
+    private volatile Double averagePageLength;
 
+    @ReplicaRead
     @Override
     public SearchResponse search(
             @NotEmpty @NotNull String query,
@@ -61,61 +68,73 @@ public class SearchServiceImpl implements SearchService {
 
         LOGGER.info("Search request [limit=" + limit + ", offset=" + offset + "]: " + query);
 
-        SearchResponse deserializedResponse = getResponse(query, getSiteName(sites));
+        SearchResponse deserializedResponse = getResponse(cacheField(query, offset, limit), getSiteName(sites));
 
         if (deserializedResponse != null) {
-            limitAndOffset(deserializedResponse, offset, limit);
             return deserializedResponse;
         }
 
-        if (mostPopularLemmas == null) {
-            mostPopularLemmas = findMostPopularLemmas(
-                    produceLemmasWithIDF(lemmaRepository.findAll(), siteRepository.findAll()),
+        List<String> popularLemmas = mostPopularLemmas;
+        if (popularLemmas == null) {
+            popularLemmas = findMostPopularLemmas(
+                    produceLemmasWithIDF(lemmaRepository.findAllLive(), siteRepository.findAll()),
                     sites);
+            mostPopularLemmas = popularLemmas;
         }
 
-        return makeResponse(query, offset, limit, sites);
+        return makeResponse(query, offset, limit, sites, popularLemmas);
     }
 
-    private SearchResponse makeResponse(String query, int offset, int limit, List<Site> sites) {
+    private SearchResponse makeResponse(String query, int offset, int limit, List<Site> sites, List<String> popularLemmas) {
         Map<String, Double> lemmasInQuery = removeMostPopularLemmas(
-                lemmasInQueryWithIDF(query, sites));
+                lemmasInQueryWithIDF(query, sites), popularLemmas);
 
-        Map<Page, Double> relevance = sortPagesByRelevanceDescending(
-                findAllPagesWithLemmas(lemmasInQuery, sites));
+        List<PageRankingData> pages = findAllPagesWithLemmas(lemmasInQuery, sites);
+        Map<Integer, Double> relevance = sortPagesByRelevanceDescending(
+                computeRelevance(pages, lemmasInQuery, offset + limit));
 
-        List<SnippetItem> snippetItemList = snippetItemList(relevance, lemmasInQuery);
+        Map<Integer, Double> window = limitAndOffset(relevance, offset, limit);
+        List<SnippetItem> snippetItemList = snippetItemList(window, lemmasInQuery);
 
         SearchResponse searchResponse = new SearchResponse();
         searchResponse.setResult(true);
-        searchResponse.setCount(snippetItemList.size());
+        searchResponse.setCount(pages.size());
         searchResponse.setData(snippetItemList);
 
-        saveResponse(query, getSiteName(sites), searchResponse);
-
-        limitAndOffset(searchResponse, offset, limit);
+        saveResponse(cacheField(query, offset, limit), getSiteName(sites), searchResponse);
 
         return searchResponse;
     }
 
-    private void limitAndOffset(
-            SearchResponse searchResponse,
+    private Map<Integer, Double> limitAndOffset(
+            Map<Integer, Double> relevance,
             @PositiveOrZero int offset,
             @PositiveOrZero int limit) {
 
-        List<SnippetItem> snippetItemList = searchResponse.getData()
+        return relevance.entrySet()
                 .stream()
                 .skip(offset)
                 .limit(limit)
-                .toList();
-
-        searchResponse.setData(snippetItemList);
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        Map.Entry::getValue,
+                        (v1, v2) -> v1,
+                        LinkedHashMap::new));
     }
 
-    private List<SnippetItem> snippetItemList(Map<Page, Double> pageRelevanceList, Map<String, Double> lemmaFrequency) {
+    private List<SnippetItem> snippetItemList(Map<Integer, Double> pageRelevanceList, Map<String, Double> lemmaFrequency) {
         List<SnippetItem> snippetItemList = new ArrayList<>();
 
-        for (Page page : pageRelevanceList.keySet()) {
+        // page content is loaded only for the requested window of the ranked pages
+        Map<Integer, Page> pages = pageRepository.findAllWithSiteByIdIn(pageRelevanceList.keySet())
+                .stream()
+                .collect(Collectors.toMap(Page::getId, page -> page));
+
+        for (Map.Entry<Integer, Double> entry : pageRelevanceList.entrySet()) {
+            Page page = pages.get(entry.getKey());
+            if (page == null)
+                continue;
+
             Site site = page.getSite();
             String title = getTitle(page);
             String snippet = makeSnippet(page, lemmaFrequency);
@@ -126,7 +145,7 @@ public class SearchServiceImpl implements SearchService {
             snippetItem.setUri(page.getPath());
             snippetItem.setTitle(title);
             snippetItem.setSnippet(snippet);
-            snippetItem.setRelevance(pageRelevanceList.get(page));
+            snippetItem.setRelevance(entry.getValue());
 
             snippetItemList.add(snippetItem);
         }
@@ -141,7 +160,7 @@ public class SearchServiceImpl implements SearchService {
                 .map(sentence -> SentenceUtil.findLemmasInSentence(
                         lemmaFinder,
                         sentence,
-                        lemmaProperties.getLanguage(),
+                        page.getSite().getLanguage(),
                         lemmaFrequency))
                 .filter(dto -> dto.getLemmaFrequency() != null && !dto.getLemmaFrequency().isEmpty())
                 .toList();
@@ -161,39 +180,94 @@ public class SearchServiceImpl implements SearchService {
         return builder.toString();
     }
 
-    private Map<Page, Double> findAllPagesWithLemmas(Map<String, Double> lemmasWithIDF, List<Site> sites) {
+    private List<PageRankingData> findAllPagesWithLemmas(Map<String, Double> lemmasWithIDF, List<Site> sites) {
         if (lemmasWithIDF.isEmpty())
-            return Collections.emptyMap();
+            return Collections.emptyList();
 
         List<String> sortedLemmas = sortLemmasByInverseFrequencyDescending(lemmasWithIDF);
         String mostRareLemma = sortedLemmas.stream().findFirst().orElse(null);
 
-        List<Page> pages = pageRepository.findAllByLemmaAndSiteIn(mostRareLemma, sites);
-
-        return computeRelevance(pages, lemmasWithIDF);
+        return pageRepository.findRankingDataByLemmaAndSiteIn(mostRareLemma, sites);
     }
 
-    private Map<Page, Double> computeRelevance(List<Page> pages, Map<String, Double> lemmasWithIDF) {
-        if (averagePageLength == null) {
-            averagePageLength = pageRepository.getAverageLength();
+    /**
+     * Pages come ordered by static rank, so scoring stops as soon as the best score
+     * the remaining pages could reach is below the worst of the top pages found so far.
+     */
+    private Map<Integer, Double> computeRelevance(List<PageRankingData> pages, Map<String, Double> lemmasWithIDF, int top) {
+        Double averageLength = averagePageLength;
+        if (averageLength == null) {
+            averageLength = pageRepository.getAverageLength();
+            averagePageLength = averageLength;
         }
 
-        Map<Page, Double> relevance = new HashMap<>();
+        double[] maxRemainingScore = maxRemainingScores(pages, lemmasWithIDF, averageLength);
+        PriorityQueue<Map.Entry<Integer, Double>> topPages = new PriorityQueue<>(Map.Entry.comparingByValue());
+
+        for (int from = 0; from < pages.size() && top > 0; from += RANK_QUERY_CHUNK_SIZE) {
+            if (topPages.size() == top && topPages.peek().getValue() >= maxRemainingScore[from])
+                break;
 
-        pages.forEach(page -> {
+            List<PageRankingData> chunk = pages.subList(from, Math.min(from + RANK_QUERY_CHUNK_SIZE, pages.size()));
+            Map<Integer, Map<String, Float>> ranks = findRanks(chunk, lemmasWithIDF.keySet());
+
+            for (PageRankingData page : chunk) {
+                Map<String, Float> pageRanks = ranks.getOrDefault(page.getId(), Collections.emptyMap());
+                double score = 0.0;
+
+                for (String lemma : lemmasWithIDF.keySet()) {
+                    score += calculateBM25(
+                            calculateTF(pageRanks.get(lemma), page.getLength()),
+                            lemmasWithIDF.get(lemma),
+                            page.getLength(),
+                            averageLength);
+                }
+
+                topPages.add(Map.entry(page.getId(), score * staticRankFactor(page)));
+                if (topPages.size() > top)
+                    topPages.poll();
+            }
+        }
+
+        return topPages.stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    // the term frequency never exceeds 1, which bounds the BM25 score of a page that has not been scored yet
+    private double[] maxRemainingScores(List<PageRankingData> pages, Map<String, Double> lemmasWithIDF, Double averageLength) {
+        double[] maxScores = new double[pages.size() + 1];
+        maxScores[pages.size()] = Double.NEGATIVE_INFINITY;
+
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            PageRankingData page = pages.get(i);
             double score = 0.0;
 
-            for (String lemma : lemmasWithIDF.keySet()) {
-                score += calculateBM25(
-                        calculateTF(page, lemma),
-                        lemmasWithIDF.get(lemma),
-                        page.getLength());
+            for (double idf : lemmasWithIDF.values()) {
+                score += Math.max(0.0, calculateBM25(1.0, idf, page.getLength(), averageLength));
             }
 
-            relevance.put(page, score);
-        });
+            maxScores[i] = Math.max(maxScores[i + 1], score * staticRankFactor(page));
+        }
+
+        return maxScores;
+    }
+
+    private double staticRankFactor(PageRankingData page) {
+        Float staticRank = page.getStaticRank();
+        return 1 + staticRankProperties.getWeight() * (staticRank == null ? 0.0 : staticRank);
+    }
+
+    private Map<Integer, Map<String, Float>> findRanks(List<PageRankingData> pages, Collection<String> lemmas) {
+        Map<Integer, Map<String, Float>> ranks = new HashMap<>();
+        List<Integer> pageIds = pages.stream()
+                .map(PageRankingData::getId)
+                .toList();
+
+        for (PageLemmaRank rank : indexRepository.findRanksByPageIdInAndLemmaIn(pageIds, lemmas)) {
+            ranks.computeIfAbsent(rank.getPageId(), id -> new HashMap<>())
+                    .merge(rank.getLemma(), rank.getRank(), Float::sum);
+        }
 
-        return relevance;
+        return ranks;
     }
 
     private List<String> sortLemmasByInverseFrequencyDescending(Map<String, Double> frequency) {
@@ -204,7 +278,7 @@ public class SearchServiceImpl implements SearchService {
                 .toList();
     }
 
-    private Map<Page, Double> sortPagesByRelevanceDescending(Map<Page, Double> relevance) {
+    private Map<Integer, Double> sortPagesByRelevanceDescending(Map<Integer, Double> relevance) {
         return relevance.entrySet()
                 .stream()
                 .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
@@ -215,13 +289,10 @@ public class SearchServiceImpl implements SearchService {
                         LinkedHashMap::new));
     }
 
-    private Map<String, Double> removeMostPopularLemmas(Map<String, Double> averageFrequency) {
-        if (mostPopularLemmas == null)
-            return averageFrequency;
-
+    private Map<String, Double> removeMostPopularLemmas(Map<String, Double> averageFrequency, List<String> popularLemmas) {
         return averageFrequency.entrySet()
                 .stream()
-                .filter(entry -> !mostPopularLemmas.contains(entry.getKey()))
+                .filter(entry -> !popularLemmas.contains(entry.getKey()))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
@@ -235,14 +306,14 @@ public class SearchServiceImpl implements SearchService {
     }
 
     private Map<String, Double> lemmasInQueryWithIDF(String query, List<Site> sites) {
-        List<Lemma> lemmasInQuery = lemmaRepository.findAllByLemmaIn(
-                lemmaFinder.collectLemmas(query).keySet());
+        List<Lemma> lemmasInQuery = lemmaRepository.findAllLiveByLemmaIn(
+                lemmaFinder.collectLemmas(query, sites.stream().map(Site::getLanguage).toList()));
 
         return produceLemmasWithIDF(lemmasInQuery, sites);
     }
 
     private Map<String, Double> produceLemmasWithIDF(List<Lemma> lemmas, List<Site> sites) {
-        long totalPages = sites.stream().mapToLong(pageRepository::countBySite).sum();
+        long totalPages = sites.stream().mapToLong(pageRepository::countLiveBySite).sum();
 
         Map<String, Double> totalFrequency = new HashMap<>();
         for (Lemma lemmaObject : lemmas) {
@@ -266,22 +337,21 @@ public class SearchServiceImpl implements SearchService {
         return scoresIDF;
     }
 
-    private double calculateTF(Page page, String lemma) {
-        Optional<Index> index = indexRepository.findByPageAndLemma(page, lemma);
-        return index.map(value -> value.getRank() / page.getLength()).orElse(0.0F);
+    private double calculateTF(Float rank, int pageLength) {
+        return rank == null ? 0.0 : rank / pageLength;
     }
 
-    private double calculateBM25(double tf, double idf, int pageLength) {
+    private double calculateBM25(double tf, double idf, int pageLength, Double averageLength) {
         double k1 = bm25Properties.getK1();
         double b = bm25Properties.getB();
 
-        return idf * ((tf * (k1 + 1)) / (tf + k1 * (1 - b + b * (pageLength / averagePageLength))));
+        return idf * ((tf * (k1 + 1)) / (tf + k1 * (1 - b + b * (pageLength / averageLength))));
     }
 
     private void saveResponse(String query, String site, SearchResponse searchResponse) {
         try {
             byte[] serializedResponse = Serializer.serialize(searchResponse);
-            jedis.hset("query: ".concat(site).getBytes(), query.getBytes(), serializedResponse);
+            redisClient.hset("query: ".concat(site).getBytes(), query.getBytes(), serializedResponse);
         } catch (NullPointerException ex) {
             LOGGER.info("There's no cached query: " + query);
         } catch (Exception ex) {
@@ -291,7 +361,7 @@ public class SearchServiceImpl implements SearchService {
 
     private SearchResponse getResponse(String query, String site) {
         try {
-            byte[] serializedResponse = jedis.hget("query: ".concat(site).getBytes(), query.getBytes());
+            byte[] serializedResponse = redisClient.hget("query: ".concat(site).getBytes(), query.getBytes());
             return (SearchResponse) Serializer.deserialize(serializedResponse);
         } catch (NullPointerException ex) {
             LOGGER.info("There's no cached query: " + query);
@@ -302,6 +372,10 @@ public class SearchServiceImpl implements SearchService {
         }
     }
 
+    private String cacheField(String query, int offset, int limit) {
+        return offset + ":" + limit + ":" + query;
+    }
+
     private String getTitle(Page page) {
         return Jsoup.parse(page.getContent()).title();
     }
@@ -311,8 +385,14 @@ public class SearchServiceImpl implements SearchService {
     }
 
     @PreDestroy
-    private void clearCache() {
-        siteService.getAllSites().forEach(site -> jedis.del("query: ".concat(site.getName())));
-        jedis.del("query: all");
+    @Override
+    public void clearCache() {
+        mostPopularLemmas = null;
+        averagePageLength = null;
+
+        List<String> keys = new ArrayList<>();
+        siteService.getAllSites().forEach(site -> keys.add("query: ".concat(site.getName())));
+        keys.add("query: all");
+        redisClient.del(keys);
     }
 }
@@ -44,4 +44,12 @@ public class SiteServiceImpl implements SiteService {
     public List<Site> getAllSites() {
         return siteRepository.findAll();
     }
+
+    @Override
+    public List<Site> getSitesByUrl(String mainUrl) {
+        return getAllSites()
+                .stream()
+                .filter(site -> mainUrl == null || site.getUrl().equals(mainUrl))
+                .toList();
+    }
 }
@@ -2,6 +2,7 @@ package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import searchengine.annotations.ReplicaRead;
 import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
@@ -26,6 +27,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
 
+    @ReplicaRead
     @Override
     public StatisticsResponse getStatistics() {
         TotalStatistics total = new TotalStatistics();
@@ -60,8 +62,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         DetailedStatisticsItem item = new DetailedStatisticsItem();
         item.setName(site.getName());
         item.setUrl(site.getUrl());
-        item.setPages(pageRepository.countBySite(site));
-        item.setLemmas(lemmaRepository.countBySite(site));
+        item.setPages(pageRepository.countLiveBySite(site));
+        item.setLemmas(lemmaRepository.countLiveBySite(site));
         item.setStatus(String.valueOf(site.getStatus()));
         item.setError(site.getLastError());
         item.setStatusTime(Timestamp.valueOf(site.getStatusTime()).getTime());
@@ -4,7 +4,7 @@ import searchengine.dto.PageData;
 
 public interface IndexingService {
     void indexPage(PageData pageData);
-    void startIndexing();
+    void startIndexing(boolean incremental, boolean resume);
     void stopIndexing();
     boolean isIndexing();
 }
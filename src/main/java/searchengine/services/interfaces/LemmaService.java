@@ -2,11 +2,14 @@ package searchengine.services.interfaces;
 
 import searchengine.model.Page;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 public interface LemmaService {
     void saveLemmas(Page page);
     void decrementLemmaFrequencyOrDelete(Page page);
-    String getFirstNormalForm(String word);
-    Map<String, Integer> collectLemmas(String text);
+    String getFirstNormalForm(String word, String language);
+    Map<String, Integer> collectLemmas(String text, String language);
+    Set<String> collectLemmas(String text, Collection<String> languages);
 }
@@ -0,0 +1,7 @@
+package searchengine.services.interfaces;
+
+import searchengine.dto.metrics.IndexingMetricsResponse;
+
+public interface MetricsService {
+    IndexingMetricsResponse getIndexingMetrics();
+}
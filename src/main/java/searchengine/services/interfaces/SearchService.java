@@ -14,4 +14,6 @@ public interface SearchService {
             @NotNull List<Site> sites,
             @PositiveOrZero int offset,
             @PositiveOrZero int limit);
+
+    void clearCache();
 }
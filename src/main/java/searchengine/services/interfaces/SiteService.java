@@ -9,4 +9,5 @@ public interface SiteService {
     void updateSiteStatusTime(Site site);
     Site saveSite(String name, String url, String language, String textError, Status status);
     List<Site> getAllSites();
+    List<Site> getSitesByUrl(String mainUrl);
 }
@@ -0,0 +1,79 @@
+package searchengine.services.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.QueryLogProperties;
+import searchengine.dto.LoggedQuery;
+import searchengine.services.interfaces.SearchService;
+import searchengine.services.interfaces.SiteService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class CacheWarmer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final QueryLogProperties properties;
+    private final QueryLog queryLog;
+    private final IndexGeneration indexGeneration;
+    private final SearchService searchService;
+    private final SiteService siteService;
+    private final ScheduledExecutorService warmUpExecutor;
+
+    private final List<Future<?>> scheduledQueries = new ArrayList<>();
+
+    public CacheWarmer(
+            QueryLogProperties properties,
+            QueryLog queryLog,
+            IndexGeneration indexGeneration,
+            SearchService searchService,
+            SiteService siteService,
+            @Qualifier("warmUpExecutor") ScheduledExecutorService warmUpExecutor) {
+
+        this.properties = properties;
+        this.queryLog = queryLog;
+        this.indexGeneration = indexGeneration;
+        this.searchService = searchService;
+        this.siteService = siteService;
+        this.warmUpExecutor = warmUpExecutor;
+    }
+
+    public synchronized void warmUp() {
+        scheduledQueries.forEach(future -> future.cancel(false));
+        scheduledQueries.clear();
+
+        long generation = indexGeneration.get();
+        List<LoggedQuery> queries = queryLog.topQueries(properties.getWarmUpQueries());
+        LOGGER.info("Cache warm up: " + queries.size() + " queries");
+
+        // queries are spread in time so that warming up does not compete with live traffic
+        for (int i = 0; i < queries.size(); i++) {
+            LoggedQuery query = queries.get(i);
+            scheduledQueries.add(warmUpExecutor.schedule(
+                    () -> replay(query, generation),
+                    i * properties.getWarmUpDelay(),
+                    TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void replay(LoggedQuery query, long generation) {
+        if (indexGeneration.get() != generation)
+            return;
+
+        try {
+            searchService.search(
+                    query.getQuery(),
+                    siteService.getSitesByUrl(query.getSite()),
+                    0,
+                    properties.getWarmUpLimit());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Cache warm up failed for query: " + query.getQuery(), ex);
+        }
+    }
+}
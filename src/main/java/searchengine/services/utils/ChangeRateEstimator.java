@@ -0,0 +1,61 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.RecrawlProperties;
+import searchengine.model.Page;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Estimates how often a page changes from its revisits and schedules the next one. Changes are taken as a Poisson
+ * process whose rate, from n revisits that found X changes over T seconds, is -ln((n - X + 0.5) / (n + 0.5)) / (T / n).
+ * The page is due when it has changed with {@code recrawl.change-probability}, a page that never changed
+ * waits twice its average interval. Intervals are kept between {@code recrawl.min-interval} and {@code recrawl.max-interval}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeRateEstimator {
+    private final RecrawlProperties properties;
+
+    public void recordVisit(Page page, boolean changed) {
+        LocalDateTime now = LocalDateTime.now();
+
+        if (page.getLastVisit() != null) {
+            long elapsed = Math.max(0, Duration.between(page.getLastVisit(), now).toSeconds());
+            page.setVisitCount(orZero(page.getVisitCount()) + 1);
+            page.setChangeCount(orZero(page.getChangeCount()) + (changed ? 1 : 0));
+            page.setObservedSeconds((page.getObservedSeconds() == null ? 0 : page.getObservedSeconds()) + elapsed);
+        }
+
+        page.setLastVisit(now);
+        page.setNextVisit(now.plus(nextInterval(page)));
+    }
+
+    private Duration nextInterval(Page page) {
+        int visits = orZero(page.getVisitCount());
+        int changes = orZero(page.getChangeCount());
+        long observed = page.getObservedSeconds() == null ? 0 : page.getObservedSeconds();
+
+        if (visits == 0 || observed == 0)
+            return properties.getInitialInterval();
+
+        double averageInterval = (double) observed / visits;
+        double seconds;
+        if (changes == 0) {
+            seconds = 2 * averageInterval;
+        } else {
+            double rate = -Math.log((visits - changes + 0.5) / (visits + 0.5)) / averageInterval;
+            seconds = -Math.log(1 - properties.getChangeProbability()) / rate;
+        }
+
+        long min = properties.getMinInterval().toSeconds();
+        long max = properties.getMaxInterval().toSeconds();
+        return Duration.ofSeconds(Math.max(min, Math.min(max, Math.round(seconds))));
+    }
+
+    private int orZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
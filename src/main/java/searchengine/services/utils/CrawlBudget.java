@@ -0,0 +1,80 @@
+package searchengine.services.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fetch and parse permits shared by all sites of one indexing run.
+ * Free permits are handed to the waiting sites in turn, so a large site cannot starve the others.
+ */
+public class CrawlBudget {
+    private final int capacity;
+    private final Map<Object, Queue<CompletableFuture<Void>>> waiters = new HashMap<>();
+    private final Queue<Object> turns = new ArrayDeque<>();
+    private int used;
+
+    public CrawlBudget(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Completes when the owner may start a fetch. The caller must {@link #release()} the permit afterwards.
+     */
+    public CompletableFuture<Void> acquire(Object owner) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+
+        synchronized (this) {
+            waiters.computeIfAbsent(owner, key -> {
+                turns.add(key);
+                return new ArrayDeque<>();
+            }).add(permit);
+        }
+        drain();
+
+        return permit;
+    }
+
+    public void release() {
+        synchronized (this) {
+            used--;
+        }
+        drain();
+    }
+
+    public synchronized int getUsed() {
+        return used;
+    }
+
+    private void drain() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+
+        synchronized (this) {
+            while (used < capacity && !turns.isEmpty()) {
+                Object owner = turns.poll();
+                Queue<CompletableFuture<Void>> queue = waiters.get(owner);
+                CompletableFuture<Void> permit = queue.poll();
+
+                if (queue.isEmpty())
+                    waiters.remove(owner);
+                else
+                    turns.add(owner);
+
+                if (permit.isDone())
+                    continue; // cancelled by a stopped crawler
+
+                used++;
+                granted.add(permit);
+            }
+        }
+
+        granted.forEach(permit -> {
+            if (!permit.complete(null))
+                release();
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.model.CrawlCheckpoint;
+import searchengine.model.Site;
+import searchengine.repositories.CrawlCheckpointRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the last checkpoint of a site crawl: the URLs still to fetch with their depths, fingerprints of the URLs already seen and the link graph.
+ * A site has one checkpoint, it belongs to the generation being built.
+ */
+@Component
+@RequiredArgsConstructor
+public class CrawlCheckpointer {
+    private final CrawlCheckpointRepository checkpointRepository;
+
+    public void save(Site site, int generation, Map<String, Integer> pending, long[] seen, byte[] linkGraph) {
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+        checkpoint.setSiteId(site.getId());
+        checkpoint.setGeneration(generation);
+        checkpoint.setSavedTime(LocalDateTime.now());
+        checkpoint.setFrontier(toBytes(pending));
+        checkpoint.setSeen(fingerprintsToBytes(seen));
+        checkpoint.setLinkGraph(linkGraph);
+
+        checkpointRepository.save(checkpoint);
+    }
+
+    /**
+     * @return checkpoint of the unfinished rebuild of the site, empty if there is nothing to resume
+     */
+    public Optional<CrawlCheckpoint> find(Site site) {
+        if (site.getBuildGeneration().equals(site.getGeneration()))
+            return Optional.empty();
+
+        return checkpointRepository.findById(site.getId())
+                .filter(checkpoint -> checkpoint.getGeneration().equals(site.getBuildGeneration()));
+    }
+
+    public void delete(Site site) {
+        if (checkpointRepository.existsById(site.getId()))
+            checkpointRepository.deleteById(site.getId());
+    }
+
+    /**
+     * @return depths of the pending URLs in their frontier order, checkpoints saved without depths give 0 for all
+     */
+    public Map<String, Integer> pending(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            int size = in.readInt();
+            List<String> urls = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                urls.add(in.readUTF());
+            }
+
+            Map<String, Integer> pending = new LinkedHashMap<>();
+            int[] depths = new int[size];
+            try {
+                for (int i = 0; i < size; i++) {
+                    depths[i] = in.readInt();
+                }
+            } catch (EOFException ex) {
+                Arrays.fill(depths, 0);
+            }
+
+            for (int i = 0; i < size; i++) {
+                pending.put(urls.get(i), depths[i]);
+            }
+            return pending;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public long[] fingerprints(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            long[] fingerprints = new long[in.readInt()];
+
+            for (int i = 0; i < fingerprints.length; i++) {
+                fingerprints[i] = in.readLong();
+            }
+            return fingerprints;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] fingerprintsToBytes(long[] fingerprints) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(baos))) {
+            out.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                out.writeLong(fingerprint);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return baos.toByteArray();
+    }
+
+    private byte[] toBytes(Map<String, Integer> pending) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(baos))) {
+            out.writeInt(pending.size());
+            for (String url : pending.keySet()) {
+                out.writeUTF(url);
+            }
+            for (int depth : pending.values()) {
+                out.writeInt(depth);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return baos.toByteArray();
+    }
+}
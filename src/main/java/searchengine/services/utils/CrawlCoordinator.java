@@ -0,0 +1,120 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.DiscoveryProperties;
+import searchengine.config.properties.DistributedProperties;
+import searchengine.dto.SitemapEntry;
+import searchengine.exceptions.RobotsTxtUnreachableException;
+import searchengine.model.Site;
+import searchengine.services.interfaces.SiteService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a site crawl on the nodes consuming the {@link StreamFrontier}. The node that started indexing seeds the
+ * site's stream and only watches its counter of pending URLs, updating the status time of the site meanwhile.
+ * The crawl is complete when no URL is queued or being crawled by any node.
+ */
+@Component
+@RequiredArgsConstructor
+public class CrawlCoordinator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrawlCoordinator.class);
+
+    private final StreamFrontier streamFrontier;
+    private final WebPageParser webPageParser;
+    private final RobotsTxtCache robotsTxtCache;
+    private final SitemapReader sitemapReader;
+    private final DiscoveryProperties discoveryProperties;
+    private final DistributedProperties distributedProperties;
+    private final SiteService siteService;
+
+    private final Set<String> stopped = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Waits until the nodes have crawled the site, the links they found are added to {@code linkGraph}.
+     * @return {@code false} if the timeout elapsed before the frontier was exhausted
+     */
+    public boolean crawl(Site site, int generation, LinkGraph linkGraph, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        String name = site.getName();
+
+        stopped.remove(name);
+        streamFrontier.open(site, generation);
+
+        try {
+            seed(site);
+
+            while (streamFrontier.getPending(name) > 0) {
+                if (stopped.contains(name))
+                    return true;
+                if (System.nanoTime() >= deadline)
+                    return false;
+
+                Thread.sleep(distributedProperties.getPollInterval());
+                siteService.updateSiteStatusTime(site);
+            }
+
+            if (linkGraph != null) {
+                streamFrontier.getLinks(name).forEach((path, targets) -> linkGraph.addLinks(path,
+                        targets.isEmpty() ? List.of() : Arrays.asList(targets.split("\n"))));
+            }
+            return true;
+        } finally {
+            streamFrontier.close(name);
+        }
+    }
+
+    public void stop(Site site) {
+        stopped.add(site.getName());
+    }
+
+    /**
+     * Queues the main page and the URLs of the site's sitemaps, the most recently modified first.
+     */
+    private void seed(Site site) {
+        PageIntrospect root = new PageIntrospect(site.getName(), site.getUrl() + "/");
+        RobotsTxt robotsTxt = robotsTxtCache.get(site.getUrl());
+        if (robotsTxt == RobotsTxt.UNREACHABLE)
+            throw new RobotsTxtUnreachableException(site.getUrl());
+
+        List<String> urls = new ArrayList<>();
+        urls.add(site.getUrl() + "/");
+
+        if (discoveryProperties.isSitemaps()) {
+            List<String> sitemaps = robotsTxt.getSitemaps().isEmpty()
+                    ? List.of(site.getUrl() + "/sitemap.xml")
+                    : robotsTxt.getSitemaps();
+
+            try {
+                // the coordinator owns its thread, it waits for the sitemaps while they download on the common pool
+                sitemapReader.read(sitemaps, ForkJoinPool.commonPool(), slot -> {})
+                        .join()
+                        .stream()
+                        .filter(entry -> entry.getUrl().startsWith(site.getUrl() + "/"))
+                        .sorted(Comparator.comparing(SitemapEntry::getLastModified,
+                                Comparator.nullsLast(Comparator.reverseOrder())))
+                        .forEach(entry -> urls.add(entry.getUrl()));
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Sitemaps of site " + site.getName() + " are skipped", ex);
+            }
+        }
+
+        List<String> seeds = webPageParser.internalUrls(urls, root)
+                .stream()
+                .filter(url -> robotsTxt.isAllowed(new PageIntrospect(url).getPath()))
+                .toList();
+        streamFrontier.addNew(site.getName(), seeds);
+        LOGGER.info("Site " + site.getName() + ": " + seeds.size() + " URLs are queued for the crawl nodes");
+    }
+}
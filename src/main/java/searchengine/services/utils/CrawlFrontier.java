@@ -0,0 +1,131 @@
+package searchengine.services.utils;
+
+import lombok.Getter;
+import searchengine.config.properties.FrontierProperties;
+import searchengine.config.properties.UrlPatternWeight;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * URLs of a site that are discovered but not fetched yet, the most important first.
+ * The priority of a URL falls with its depth, grows with the links to it found while it waits
+ * and with the weight of the first {@code frontier.patterns} entry its path matches. URLs of equal priority keep their order.
+ * Not thread-safe, the owning crawler guards it with its lock.
+ */
+public class CrawlFrontier {
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry entry) -> -entry.priority)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final TreeSet<Entry> queue = new TreeSet<>(ORDER);
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<Double> weights = new ArrayList<>();
+    private final double depthWeight;
+    private final double inlinkWeight;
+    private long sequence;
+
+    public CrawlFrontier(FrontierProperties properties) {
+        this.depthWeight = properties.getDepthWeight();
+        this.inlinkWeight = properties.getInlinkWeight();
+
+        for (UrlPatternWeight pattern : properties.getPatterns()) {
+            patterns.add(Pattern.compile(pattern.getPattern()));
+            weights.add(pattern.getWeight());
+        }
+    }
+
+    public void add(String url, int depth) {
+        if (entries.containsKey(url))
+            return;
+
+        Entry entry = new Entry(url, depth, patternWeight(url), sequence++);
+        entry.priority = priority(entry);
+        entries.put(url, entry);
+        queue.add(entry);
+    }
+
+    public void addAll(Collection<String> urls, int depth) {
+        urls.forEach(url -> add(url, depth));
+    }
+
+    /**
+     * Counts a link to each of the URLs that are still queued.
+     */
+    public void addInlinks(Collection<String> urls) {
+        for (String url : urls) {
+            Entry entry = entries.get(url);
+            if (entry == null)
+                continue;
+
+            queue.remove(entry);
+            entry.inlinks++;
+            entry.priority = priority(entry);
+            queue.add(entry);
+        }
+    }
+
+    public Entry poll() {
+        Entry entry = queue.pollFirst();
+        if (entry != null)
+            entries.remove(entry.url);
+        return entry;
+    }
+
+    /**
+     * @return depths of the queued URLs, the most important first
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> urls = new LinkedHashMap<>();
+        queue.forEach(entry -> urls.put(entry.url, entry.depth));
+        return urls;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    private double priority(Entry entry) {
+        return entry.patternWeight
+                - depthWeight * entry.depth
+                + inlinkWeight * Math.log1p(entry.inlinks);
+    }
+
+    private double patternWeight(String url) {
+        String path = new PageIntrospect(url).getPath();
+
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).matcher(path).find())
+                return weights.get(i);
+        }
+        return 0;
+    }
+
+    @Getter
+    public static class Entry {
+        private final String url;
+        private final int depth;
+        private final double patternWeight;
+        private final long sequence;
+        private int inlinks;
+        private double priority;
+
+        private Entry(String url, int depth, double patternWeight, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.patternWeight = patternWeight;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -2,9 +2,11 @@ package searchengine.services.utils;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
-import redis.clients.jedis.Jedis;
 import searchengine.config.properties.SiteConfig;
 import searchengine.model.Lemma;
 import searchengine.model.Page;
@@ -13,8 +15,10 @@ import searchengine.model.Status;
 import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteLinkGraphRepository;
 import searchengine.repositories.SiteRepository;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -24,16 +28,26 @@ import java.util.stream.Collectors;
 @Component
 @RequiredArgsConstructor
 public class DataCleaner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataCleaner.class);
+
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private final Jedis jedis;
+    private final SiteLinkGraphRepository linkGraphRepository;
+    private final CrawlCheckpointer crawlCheckpointer;
+    private final RedisClient redisClient;
 
     @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
     private int batchSize;
 
-    public boolean deleteOldData(ExecutorService executor, List<SiteConfig> siteConfigList) throws InterruptedException, ExecutionException {
+    /**
+     * Deletes sites removed from the config and generations of configured sites that are not live,
+     * the live index of a configured site is kept until its rebuild succeeds.
+     * A rebuild that has a checkpoint is kept too, so that it can be resumed.
+     */
+    public boolean deleteOldData(ExecutorService executor, List<SiteConfig> siteConfigList)
+            throws InterruptedException, ExecutionException {
         List<String> urls = siteConfigList.stream()
                 .map(SiteConfig::getUrl)
                 .toList();
@@ -41,15 +55,21 @@ public class DataCleaner {
         Set<Site> sites = new TreeSet<>(siteRepository.findAllByUrlIsIn(urls));
         sites.addAll(siteRepository.findAllByStatus(Status.INDEXING));
 
-        Future<Boolean> future = executor.submit(() -> sites.stream().allMatch(this::deleteSiteData));
+        Set<Site> removedSites = sites.stream()
+                .filter(site -> !urls.contains(site.getUrl()))
+                .collect(Collectors.toSet());
+
+        Future<Boolean> future = executor.submit(() -> sites.stream().allMatch(site -> removedSites.contains(site)
+                ? deleteSiteData(site)
+                : deleteStaleGenerations(site)));
         boolean isDeleted = future.get();
 
-        sites.forEach(site -> jedis.del(site.getName()));
+        redisClient.del(sites.stream().map(Site::getName).toList());
 
-        siteRepository.deleteAll(
-                sites.stream()
-                        .filter(site -> !urls.contains(site.getUrl()))
-                        .collect(Collectors.toSet()));
+        linkGraphRepository.deleteAll(
+                linkGraphRepository.findAllById(removedSites.stream().map(Site::getId).toList()));
+        removedSites.forEach(crawlCheckpointer::delete);
+        siteRepository.deleteAll(removedSites);
 
         executor.shutdown();
 
@@ -62,6 +82,43 @@ public class DataCleaner {
         return isNotTimeout && isDeleted;
     }
 
+    /**
+     * Garbage-collects a generation that is no longer live in the background.
+     */
+    @Async
+    public void collectGeneration(Site site, int generation) {
+        if (deleteGeneration(site, generation))
+            LOGGER.debug("Generation " + generation + " of site " + site.getName() + " has been deleted");
+    }
+
+    private boolean deleteStaleGenerations(Site site) {
+        Set<Integer> generations = new HashSet<>(pageRepository.findGenerationsBySite(site));
+        generations.addAll(lemmaRepository.findGenerationsBySite(site));
+        generations.remove(site.getGeneration());
+        crawlCheckpointer.find(site).ifPresent(checkpoint -> generations.remove(checkpoint.getGeneration()));
+
+        return generations.stream().allMatch(generation -> deleteGeneration(site, generation));
+    }
+
+    private boolean deleteGeneration(Site site, int generation) {
+        while ((lemmaRepository.countBySiteAndGeneration(site, generation) > 0
+                || pageRepository.countBySiteAndGeneration(site, generation) > 0)) {
+            if (Thread.currentThread().isInterrupted())
+                return false;
+
+            PageRequest batch = PageRequest.of(0, batchSize);
+            List<Lemma> lemmasToDelete = lemmaRepository.findAllBySiteAndGeneration(site, generation, batch);
+            List<Page> pagesToDelete = pageRepository.findAllBySiteAndGeneration(site, generation, batch);
+
+            indexRepository.deleteAllByLemmaIn(lemmasToDelete);
+            indexRepository.deleteAllByPageIn(pagesToDelete);
+
+            lemmaRepository.deleteAll(lemmasToDelete);
+            pageRepository.deleteAll(pagesToDelete);
+        }
+        return true;
+    }
+
     private boolean deleteSiteData(Site site) {
         while ((lemmaRepository.countBySite(site) > 0 || pageRepository.countBySite(site) > 0)) {
             if (Thread.currentThread().isInterrupted())
@@ -0,0 +1,205 @@
+package searchengine.services.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.resps.StreamEntry;
+import searchengine.config.properties.CanonicalizationProperties;
+import searchengine.config.properties.DistributedProperties;
+import searchengine.dto.PageExtract;
+import searchengine.exceptions.InvalidURLException;
+import searchengine.exceptions.ResponseTooLargeException;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repositories.SiteRepository;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumes the {@link StreamFrontier} of every crawl in progress when {@code distributed.enabled} is set.
+ * Each worker thread is a consumer of its own, it claims a batch of URLs, fetches and lemmatizes the pages,
+ * queues their new links and acknowledges the batch once the pages are written. URLs left unacknowledged
+ * by a node that went away are claimed again after {@code distributed.claim-idle-time}.
+ * Workers only store pages, the status of the sites is kept by the node coordinating the crawl.
+ */
+@Component
+@RequiredArgsConstructor
+public class DistributedCrawlWorker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DistributedCrawlWorker.class);
+
+    private final DistributedProperties properties;
+    private final CanonicalizationProperties canonicalizationProperties;
+    private final StreamFrontier streamFrontier;
+    private final WebPageParser webPageParser;
+    private final PageWriter pageWriter;
+    private final HostScheduler hostScheduler;
+    private final RobotsTxtCache robotsTxtCache;
+    private final SiteRepository siteRepository;
+
+    private final Map<Integer, Site> sites = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    @PostConstruct
+    private void start() {
+        if (!properties.isEnabled())
+            return;
+
+        String nodeId = nodeId();
+        AtomicInteger threadNumber = new AtomicInteger();
+        running = true;
+        workers = Executors.newFixedThreadPool(properties.getWorkerThreads(),
+                runnable -> new Thread(runnable, "stream-crawler-" + threadNumber.incrementAndGet()));
+
+        for (int i = 1; i <= properties.getWorkerThreads(); i++) {
+            String consumer = nodeId + "-" + i;
+            workers.execute(() -> work(consumer));
+        }
+        LOGGER.info("Node " + nodeId + " crawls the shared frontier with " + properties.getWorkerThreads() + " threads");
+    }
+
+    @PreDestroy
+    private void stop() {
+        running = false;
+        if (workers != null)
+            workers.shutdownNow();
+    }
+
+    public String nodeId() {
+        if (properties.getNodeId() != null)
+            return properties.getNodeId();
+
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid();
+        } catch (UnknownHostException ex) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+
+    private void work(String consumer) {
+        long nextReclaim = 0;
+
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                Map<String, StreamFrontier.ActiveCrawl> crawls = streamFrontier.getActiveCrawls();
+                if (crawls.isEmpty()) {
+                    Thread.sleep(properties.getPollInterval());
+                    continue;
+                }
+
+                if (System.currentTimeMillis() >= nextReclaim) {
+                    for (Map.Entry<String, StreamFrontier.ActiveCrawl> crawl : crawls.entrySet()) {
+                        List<StreamEntry> entries = streamFrontier.reclaim(crawl.getKey(), consumer,
+                                properties.getClaimIdleTime(), properties.getBatchSize());
+                        process(crawl.getKey(), crawl.getValue(), entries);
+                    }
+                    nextReclaim = System.currentTimeMillis() + properties.getClaimIdleTime() / 2;
+                }
+
+                Map<String, List<StreamEntry>> claimed = streamFrontier.claim(crawls.keySet(), consumer,
+                        properties.getBatchSize(), properties.getBlockTimeout());
+                for (Map.Entry<String, List<StreamEntry>> entries : claimed.entrySet()) {
+                    process(entries.getKey(), crawls.get(entries.getKey()), entries.getValue());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                // a crawl may have been closed between listing the streams and reading them
+                LOGGER.debug("Consumer " + consumer + " failed to read the frontier: " + ex.getMessage());
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Crawls the batch and acknowledges it after the pages are flushed, so the URLs of a node
+     * that fails midway are crawled again by another one.
+     */
+    private void process(String name, StreamFrontier.ActiveCrawl crawl, List<StreamEntry> entries)
+            throws InterruptedException {
+        if (entries.isEmpty())
+            return;
+
+        Site site = sites.computeIfAbsent(crawl.getSiteId(), id -> siteRepository.findById(id).orElseThrow());
+        RobotsTxt robotsTxt = robotsTxtCache.get(site.getUrl());
+        Map<String, String> links = new HashMap<>();
+
+        for (StreamEntry entry : entries) {
+            crawlPage(site, crawl.getGeneration(), robotsTxt, StreamFrontier.getUrl(entry), links);
+        }
+
+        pageWriter.flush();
+        streamFrontier.complete(name, entries.stream().map(StreamEntry::getID).toList(), links);
+    }
+
+    private void crawlPage(Site site, int generation, RobotsTxt robotsTxt, String url, Map<String, String> links)
+            throws InterruptedException {
+        PageIntrospect page = new PageIntrospect(site.getName(), url);
+        String host = page.getDomain();
+
+        try {
+            hostScheduler.acquire(host).get();
+        } catch (ExecutionException ex) {
+            return;
+        }
+
+        try {
+            PageExtract extract = webPageParser.parsePage(page);
+
+            String canonicalUrl = canonicalizationProperties.isRelCanonical()
+                    ? webPageParser.declaredCanonicalUrl(extract, page)
+                    : null;
+            if (canonicalUrl != null && !canonicalUrl.equals(url) && webPageParser.isInternal(canonicalUrl, page)) {
+                streamFrontier.addNew(site.getName(), List.of(canonicalUrl));
+                return;
+            }
+
+            Page newPage = webPageParser.getPage(page, site);
+            newPage.setGeneration(generation);
+            pageWriter.save(newPage);
+
+            Collection<String> internalLinks = webPageParser.internalUrls(extract.getLinks(), page);
+            links.put(page.getPath(), String.join("\n", internalLinks.stream()
+                    .map(link -> new PageIntrospect(link).getPath())
+                    .toList()));
+
+            String mainUrl = page.getMainUrl() + "/";
+            streamFrontier.addNew(site.getName(), internalLinks.stream()
+                    .filter(link -> !link.equals(mainUrl) && !link.equals(url))
+                    .filter(link -> robotsTxt.isAllowed(new PageIntrospect(link).getPath()))
+                    .toList());
+
+        } catch (HttpStatusException | UnsupportedMimeTypeException | InvalidURLException | ResponseTooLargeException ignored) {
+        } catch (IOException ex) {
+            LOGGER.debug("Page " + url + " is skipped: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Page " + url + " is skipped", ex);
+        } finally {
+            hostScheduler.release(host);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getPollInterval());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package searchengine.services.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.ResponseCacheProperties;
+import searchengine.dto.EncodedResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+@RequiredArgsConstructor
+public class EncodedResponseCache {
+    private final ResponseCacheProperties properties;
+    private final IndexGeneration indexGeneration;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, EncodedResponse> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EncodedResponse> eldest) {
+                    return size() > properties.getMaxEntries();
+                }
+            });
+
+    public EncodedResponse get(String key, Supplier<?> body) {
+        long generation = indexGeneration.get();
+        EncodedResponse response = cache.get(key);
+
+        if (response == null || response.getGeneration() != generation) {
+            response = encode(generation, checksum(key.getBytes(StandardCharsets.UTF_8)), toJson(body.get()));
+            cache.put(key, response);
+        }
+
+        return response;
+    }
+
+    public EncodedResponse encode(Object body) {
+        byte[] json = toJson(body);
+        return encode(indexGeneration.get(), checksum(json), json);
+    }
+
+    private EncodedResponse encode(long generation, String checksum, byte[] json) {
+        String etag = "\"" + Long.toHexString(generation) + "-" + checksum + "\"";
+        byte[] gzip = json.length >= properties.getCompressionThreshold() ? gzip(json) : null;
+        return new EncodedResponse(generation, etag, json, gzip);
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+            gzos.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return baos.toByteArray();
+    }
+
+    private String checksum(byte[] bytes) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return Long.toHexString(crc32.getValue());
+    }
+}
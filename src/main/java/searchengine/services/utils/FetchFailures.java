@@ -0,0 +1,59 @@
+package searchengine.services.utils;
+
+import org.jsoup.HttpStatusException;
+import searchengine.exceptions.CircuitOpenException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts why the fetches of a site failed, the most frequent reasons go into the site's last error.
+ */
+public class FetchFailures {
+    private final Map<String, LongAdder> reasons = new ConcurrentHashMap<>();
+
+    public void record(IOException ex) {
+        reasons.computeIfAbsent(reason(ex), key -> new LongAdder()).increment();
+    }
+
+    public boolean isEmpty() {
+        return reasons.isEmpty();
+    }
+
+    /**
+     * @return e.g. {@code "Failed fetches: timeout (12), HTTP 503 (3)"}, {@code null} if no fetch failed
+     */
+    public String summary(int limit) {
+        if (reasons.isEmpty())
+            return null;
+
+        return "Failed fetches: " + reasons.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, LongAdder>comparingByValue(
+                        (first, second) -> Long.compare(second.sum(), first.sum())))
+                .limit(limit)
+                .map(entry -> entry.getKey() + " (" + entry.getValue().sum() + ")")
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String reason(IOException ex) {
+        if (ex instanceof HttpStatusException statusException)
+            return "HTTP " + statusException.getStatusCode();
+        if (ex instanceof CircuitOpenException)
+            return "circuit open";
+        if (ex instanceof HttpTimeoutException || ex instanceof SocketTimeoutException)
+            return "timeout";
+        if (ex instanceof ConnectException)
+            return "connection refused";
+        if (ex instanceof UnknownHostException)
+            return "unknown host";
+        return ex.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,111 @@
+package searchengine.services.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class FetchMetrics {
+    private final Map<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    public void recordFetch(String host, long latencyNanos, long bytes) {
+        HostMetrics metrics = host(host);
+        metrics.requests.increment();
+        metrics.latencyNanos.add(latencyNanos);
+        metrics.maxLatencyNanos.accumulate(latencyNanos);
+        metrics.bytes.add(bytes);
+    }
+
+    public void recordError(String host) {
+        host(host).errors.increment();
+    }
+
+    public void recordRetry(String host) {
+        host(host).retries.increment();
+    }
+
+    /**
+     * Counts a request that was not sent because the circuit of the host is open.
+     */
+    public void recordRejected(String host) {
+        host(host).rejected.increment();
+    }
+
+    public void recordSavedFetch(String host) {
+        host(host).savedFetches.increment();
+    }
+
+    /**
+     * @param bytes bytes of the body that were not downloaded, 0 if the length is unknown
+     */
+    public void recordSkipped(String host, long bytes) {
+        HostMetrics metrics = host(host);
+        metrics.skipped.increment();
+        metrics.skippedBytes.add(bytes);
+    }
+
+    public Map<String, HostMetrics> getHosts() {
+        return hosts;
+    }
+
+    private HostMetrics host(String host) {
+        return hosts.computeIfAbsent(host, key -> new HostMetrics());
+    }
+
+    public static class HostMetrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder savedFetches = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder skippedBytes = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getSavedFetches() {
+            return savedFetches.sum();
+        }
+
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        public long getSkippedBytes() {
+            return skippedBytes.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public double getAverageLatencyMillis() {
+            long count = requests.sum();
+            return count == 0 ? 0 : latencyNanos.sum() / 1e6 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos.get() / 1e6;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.CircuitBreakerProperties;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to hosts that keep failing. After {@code failureThreshold} failures in a row the circuit
+ * of a host opens and its requests fail fast. When the open time has passed, one trial request is let through:
+ * its success closes the circuit, its failure opens it again for twice as long, up to {@code maxOpenTime}.
+ */
+@Component
+@RequiredArgsConstructor
+public class HostCircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    private final CircuitBreakerProperties properties;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * @return {@code false} if the circuit of the host is open and the request must not be sent
+     */
+    public boolean allowRequest(String host) {
+        Circuit circuit = circuit(host);
+
+        synchronized (circuit) {
+            if (circuit.openUntil == 0)
+                return true;
+
+            long now = System.nanoTime();
+            if (now < circuit.openUntil || now < circuit.trialUntil)
+                return false;
+
+            // a trial that never reported back does not keep the circuit open forever
+            circuit.trialUntil = now + circuit.openNanos;
+            return true;
+        }
+    }
+
+    public void recordSuccess(String host) {
+        Circuit circuit = circuit(host);
+
+        synchronized (circuit) {
+            if (circuit.openUntil != 0)
+                LOGGER.info("Circuit of host " + host + " is closed");
+
+            circuit.failures = 0;
+            circuit.openUntil = 0;
+            circuit.trialUntil = 0;
+        }
+    }
+
+    public void recordFailure(String host) {
+        Circuit circuit = circuit(host);
+        long now = System.nanoTime();
+
+        synchronized (circuit) {
+            circuit.failures++;
+
+            if (circuit.openUntil != 0) {
+                if (circuit.trialUntil == 0)
+                    return;
+                circuit.openNanos = Math.min(circuit.openNanos * 2, TimeUnit.SECONDS.toNanos(properties.getMaxOpenTime()));
+            } else if (circuit.failures >= properties.getFailureThreshold()) {
+                circuit.openNanos = TimeUnit.SECONDS.toNanos(properties.getOpenTime());
+            } else {
+                return;
+            }
+
+            circuit.openUntil = now + circuit.openNanos;
+            circuit.trialUntil = 0;
+            LOGGER.warn("Circuit of host " + host + " is open for " + TimeUnit.NANOSECONDS.toSeconds(circuit.openNanos)
+                    + " s after " + circuit.failures + " failures");
+        }
+    }
+
+    public Set<String> getOpenHosts() {
+        Set<String> open = new TreeSet<>();
+        circuits.forEach((host, circuit) -> {
+            synchronized (circuit) {
+                if (circuit.openUntil != 0)
+                    open.add(host);
+            }
+        });
+        return open;
+    }
+
+    private Circuit circuit(String host) {
+        return circuits.computeIfAbsent(host, key -> new Circuit());
+    }
+
+    private static class Circuit {
+        private int failures;
+        private long openNanos;
+        private long openUntil;
+        private long trialUntil;
+    }
+}
@@ -0,0 +1,238 @@
+package searchengine.services.utils;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.PolitenessProperties;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out fetch slots per host: a token bucket limits the request rate and
+ * a counter limits the open connections. Waiting callers get a future instead of a blocked thread.
+ * The connection limit of a host is adjusted AIMD-style: it grows while the latency stays flat and
+ * is cut on 429/503 responses, timeouts or rising latency. Retry-After pauses the host.
+ */
+@Component
+public class HostScheduler {
+    private final PolitenessProperties properties;
+    private final ScheduledExecutorService timer;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public HostScheduler(PolitenessProperties properties,
+                         @Qualifier("politenessTimer") ScheduledExecutorService timer) {
+        this.properties = properties;
+        this.timer = timer;
+    }
+
+    /**
+     * Completes when a request to the host may be sent. The caller must {@link #release(String)} the slot afterwards.
+     */
+    public CompletableFuture<Void> acquire(String host) {
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        HostState state = state(host);
+
+        synchronized (state) {
+            state.waiters.add(slot);
+        }
+        drain(host, state);
+
+        return slot;
+    }
+
+    /**
+     * Like {@link #acquire(String)}, but the caller joins the queue of the host only after {@code delay}.
+     * No thread waits meanwhile, the politeness timer enqueues it.
+     */
+    public CompletableFuture<Void> acquire(String host, Duration delay) {
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        HostState state = state(host);
+
+        timer.schedule(() -> {
+            synchronized (state) {
+                state.waiters.add(slot);
+            }
+            drain(host, state);
+        }, delay.toNanos(), TimeUnit.NANOSECONDS);
+
+        return slot;
+    }
+
+    public void release(String host) {
+        HostState state = state(host);
+
+        synchronized (state) {
+            state.active--;
+        }
+        drain(host, state);
+    }
+
+    /**
+     * Feeds the outcome of a request into the connection limit of the host.
+     * @param retryAfter value of the Retry-After header, may be {@code null}
+     */
+    public void recordResponse(String host, int statusCode, long latencyNanos, Duration retryAfter) {
+        HostState state = state(host);
+        long now = System.nanoTime();
+
+        synchronized (state) {
+            if (statusCode == 429 || statusCode == 503) {
+                if (retryAfter != null) {
+                    long pause = Math.min(retryAfter.toNanos(), TimeUnit.SECONDS.toNanos(properties.getMaxRetryAfter()));
+                    state.pausedUntil = Math.max(state.pausedUntil, now + pause);
+                }
+                state.decrease(now, properties.getBackoffFactor());
+            } else {
+                state.observe(latencyNanos);
+                if (state.smoothedLatency > state.baselineLatency * properties.getLatencyTolerance())
+                    state.decrease(now, properties.getBackoffFactor());
+                else
+                    state.increase(properties.getMaxConnectionsPerHost());
+            }
+        }
+        drain(host, state);
+    }
+
+    public void recordTimeout(String host) {
+        HostState state = state(host);
+
+        synchronized (state) {
+            state.decrease(System.nanoTime(), properties.getBackoffFactor());
+        }
+    }
+
+    public Map<String, Integer> getConnectionLimits() {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        hosts.forEach((host, state) -> {
+            synchronized (state) {
+                limits.put(host, (int) state.limit);
+            }
+        });
+        return limits;
+    }
+
+    public void setCrawlDelay(String host, Duration crawlDelay) {
+        if (crawlDelay == null || !properties.isHonorCrawlDelay())
+            return;
+
+        HostState state = state(host);
+        synchronized (state) {
+            state.interval = Math.max(state.interval, crawlDelay.toNanos());
+        }
+    }
+
+    private void drain(String host, HostState state) {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+
+        synchronized (state) {
+            while (!state.waiters.isEmpty() && state.active < (int) state.limit) {
+                long paused = state.pausedUntil - System.nanoTime();
+                if (paused > 0) {
+                    scheduleWakeUp(host, state, paused);
+                    break;
+                }
+
+                state.refill(properties.getBurst());
+
+                if (state.tokens < 1) {
+                    scheduleWakeUp(host, state, (long) ((1 - state.tokens) * state.interval));
+                    break;
+                }
+
+                CompletableFuture<Void> waiter = state.waiters.poll();
+                if (waiter.isDone())
+                    continue; // cancelled by a stopped crawler
+
+                state.tokens--;
+                state.active++;
+                granted.add(waiter);
+            }
+        }
+
+        // dependent actions run outside the lock, they may release the slot right away
+        granted.forEach(waiter -> {
+            if (!waiter.complete(null))
+                release(host);
+        });
+    }
+
+    private void scheduleWakeUp(String host, HostState state, long delay) {
+        if (state.wakeUpScheduled)
+            return;
+
+        state.wakeUpScheduled = true;
+
+        timer.schedule(() -> {
+            synchronized (state) {
+                state.wakeUpScheduled = false;
+            }
+            drain(host, state);
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private HostState state(String host) {
+        return hosts.computeIfAbsent(host, key -> new HostState(
+                (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRequestsPerSecond()),
+                properties.getBurst(),
+                Math.min(properties.getInitialConnectionsPerHost(), properties.getMaxConnectionsPerHost())));
+    }
+
+    private static class HostState {
+        private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private long interval;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private int active;
+        private boolean wakeUpScheduled;
+        private double limit;
+        private double smoothedLatency;
+        private double baselineLatency;
+        private long decreasedAt;
+        private long pausedUntil;
+
+        private HostState(long interval, int burst, int limit) {
+            this.interval = interval;
+            this.tokens = burst;
+            this.limit = Math.max(1, limit);
+        }
+
+        private void observe(long latency) {
+            if (smoothedLatency == 0) {
+                smoothedLatency = latency;
+                baselineLatency = latency;
+                return;
+            }
+            smoothedLatency = 0.8 * smoothedLatency + 0.2 * latency;
+            // the baseline follows slower hosts gradually, so a single fast response does not pin it
+            baselineLatency = Math.min(latency, baselineLatency * 1.01);
+        }
+
+        private void increase(int maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        private void decrease(long now, double factor) {
+            // one cut per round trip, responses to the requests sent before it carry no news
+            if (now - decreasedAt < smoothedLatency)
+                return;
+            limit = Math.max(1, limit * factor);
+            decreasedAt = now;
+        }
+
+        private void refill(int burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (double) (now - refilledAt) / interval);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.FetcherProperties;
+import searchengine.dto.FetchResponse;
+import searchengine.exceptions.CircuitOpenException;
+import searchengine.exceptions.RetryableFetchException;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP client of the crawler: connections are pooled and reused (HTTP/2 where the server supports it),
+ * bodies are requested compressed and decoded here. Transient failures are reported with a jittered exponential
+ * backoff for the caller to retry after, and requests to a host whose circuit is open fail fast
+ * with {@link CircuitOpenException}.
+ */
+@Component
+@RequiredArgsConstructor
+public class HttpFetcher {
+    public static final int NO_RETRY = -1;
+    // statuses that tell a page no longer exists
+    public static final Set<Integer> GONE_STATUSES = Set.of(404, 410);
+
+    private static final Set<Integer> TRANSIENT_STATUSES = Set.of(429, 502, 503, 504);
+
+    private final HttpClient httpClient;
+    private final FetcherProperties properties;
+    private final FetchMetrics fetchMetrics;
+    private final HostScheduler hostScheduler;
+    private final HostCircuitBreaker circuitBreaker;
+
+    public FetchResponse fetch(String url) throws IOException {
+        return fetch(url, Map.of());
+    }
+
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        return fetch(url, headers, (response, body) ->
+                new FetchResponse(response.uri(), response.statusCode(), response.headers(), body.readAllBytes()));
+    }
+
+    /**
+     * Reads the body of a page only if it can be indexed. {@code maxBodySize} limits the decoded body.
+     * Content-Type decides before the body is read, and so does the Content-Length of a body sent without
+     * a content encoding. Any other body is read up to {@code maxBodySize} and the download is aborted beyond it.
+     * A response that is not read is returned skipped with an empty body. Its Content-Length, or the decoded bytes
+     * read before the abort, are counted as skipped bytes.
+     */
+    public FetchResponse fetchPage(String url, Map<String, String> headers, int attempt, long maxBodySize,
+                                   Predicate<String> acceptedType) throws IOException {
+        String host = URI.create(url).getHost();
+
+        return fetch(url, headers, attempt, (response, body) -> {
+            int statusCode = response.statusCode();
+            if (statusCode < 200 || statusCode >= 400)
+                return new FetchResponse(response.uri(), statusCode, response.headers(), new byte[0]);
+
+            String contentType = response.headers().firstValue("Content-Type").orElse("");
+            long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            // the length of a compressed body says nothing certain about its decoded size
+            boolean identity = response.headers().firstValue("Content-Encoding").orElse("identity")
+                    .equalsIgnoreCase("identity");
+
+            if (!acceptedType.test(contentType) || identity && contentLength > maxBodySize) {
+                fetchMetrics.recordSkipped(host, Math.max(contentLength, 0));
+                return new FetchResponse(response.uri(), statusCode, response.headers(), new byte[0], true);
+            }
+
+            byte[] bytes = body.readNBytes((int) Math.min(maxBodySize + 1, Integer.MAX_VALUE - 8));
+            if (bytes.length > maxBodySize) {
+                fetchMetrics.recordSkipped(host, bytes.length);
+                return new FetchResponse(response.uri(), statusCode, response.headers(), new byte[0], true);
+            }
+
+            return new FetchResponse(response.uri(), statusCode, response.headers(), bytes);
+        });
+    }
+
+    public <T> T fetch(String url, Map<String, String> headers, BodyReader<T> reader) throws IOException {
+        return fetch(url, headers, NO_RETRY, reader);
+    }
+
+    /**
+     * Hands the decoded body to {@code reader} as a stream, so large responses are not buffered.
+     * Sends the request once: while retries of a transient failure are left, {@link RetryableFetchException}
+     * tells the caller when to send it again, the thread never waits here. The response of the last attempt
+     * is handed over even if its status is transient.
+     * @param attempt number of the attempt starting from 0, {@link #NO_RETRY} if the caller does not retry
+     */
+    public <T> T fetch(String url, Map<String, String> headers, int attempt, BodyReader<T> reader) throws IOException {
+        URI uri = URI.create(url);
+        String host = uri.getHost();
+
+        if (!circuitBreaker.allowRequest(host)) {
+            fetchMetrics.recordRejected(host);
+            throw new CircuitOpenException(host);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        headers.forEach(builder::header);
+
+        HttpRequest request = builder
+                .timeout(Duration.ofMillis(properties.getReadTimeout()))
+                .header("User-Agent", properties.getUserAgent())
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.5")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+
+        boolean lastAttempt = attempt == NO_RETRY || attempt >= properties.getMaxRetries();
+        long start = System.nanoTime();
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            Duration retryAfter = retryAfter(response.headers().firstValue("Retry-After").orElse(null));
+            hostScheduler.recordResponse(host, response.statusCode(), System.nanoTime() - start, retryAfter);
+
+            if (TRANSIENT_STATUSES.contains(response.statusCode())) {
+                circuitBreaker.recordFailure(host);
+                // a longer Retry-After is left to the host scheduler, the page is not kept waiting for it
+                lastAttempt |= retryAfter != null && retryAfter.toMillis() > properties.getRetryMaxDelay();
+
+                if (!lastAttempt) {
+                    response.body().close();
+                    fetchMetrics.recordRetry(host);
+                    throw new RetryableFetchException(url, "HTTP " + response.statusCode(), retryDelay(attempt, retryAfter));
+                }
+            } else {
+                circuitBreaker.recordSuccess(host);
+            }
+
+            CountingInputStream counter = new CountingInputStream(response.body());
+            T result;
+            try (InputStream in = decode(counter, response.headers().firstValue("Content-Encoding").orElse(""))) {
+                result = reader.read(response, in);
+            } catch (IOException ex) {
+                // the reader rejected the body, another download of it would not help
+                if (counter.failure == null)
+                    throw new BodyReaderException(ex);
+                throw ex;
+            }
+
+            fetchMetrics.recordFetch(host, System.nanoTime() - start, counter.count);
+            return result;
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(url);
+        } catch (RetryableFetchException ex) {
+            throw ex;
+        } catch (BodyReaderException ex) {
+            throw ex.getCause();
+        } catch (IOException ex) {
+            if (ex instanceof HttpTimeoutException)
+                hostScheduler.recordTimeout(host);
+            fetchMetrics.recordError(host);
+
+            if (Thread.currentThread().isInterrupted())
+                throw ex;
+            circuitBreaker.recordFailure(host);
+            if (lastAttempt || !isTransient(ex))
+                throw ex;
+
+            fetchMetrics.recordRetry(host);
+            throw new RetryableFetchException(url, ex.toString(), retryDelay(attempt, null));
+        }
+    }
+
+    /**
+     * Timeouts and lost connections are worth another attempt, HttpClient reports some of the latter as plain IOException.
+     * Only failures of sending the request and of receiving the body get here, never errors of the body reader.
+     */
+    private boolean isTransient(IOException ex) {
+        return ex instanceof HttpTimeoutException
+                || ex instanceof SocketException
+                || ex instanceof EOFException
+                || ex.getClass() == IOException.class;
+    }
+
+    /**
+     * A random time up to the exponential delay of the attempt ("full jitter"), at least the Retry-After.
+     */
+    private Duration retryDelay(int attempt, Duration retryAfter) {
+        long ceiling = Math.min(properties.getRetryMaxDelay(), properties.getRetryBaseDelay() << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (retryAfter != null)
+            delay = Math.max(delay, retryAfter.toMillis());
+
+        return Duration.ofMillis(delay);
+    }
+
+    private Duration retryAfter(String value) {
+        if (value == null)
+            return null;
+
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ignored) {}
+
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Duration.between(ZonedDateTime.now(), date);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        return switch (contentEncoding.trim().toLowerCase()) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(in);
+            case "deflate" -> new InflaterInputStream(in);
+            default -> in;
+        };
+    }
+
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(HttpResponse<?> response, InputStream body) throws IOException;
+    }
+
+    /**
+     * Carries an error of the body reader past the retry handling of transport failures.
+     */
+    private static class BodyReaderException extends IOException {
+        private BodyReaderException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Counts the bytes received and remembers whether the connection itself failed.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+        private IOException failure;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b >= 0)
+                    count++;
+                return b;
+            } catch (IOException ex) {
+                failure = ex;
+                throw ex;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int read = super.read(b, off, len);
+                if (read > 0)
+                    count += read;
+                return read;
+            } catch (IOException ex) {
+                failure = ex;
+                throw ex;
+            }
+        }
+    }
+}
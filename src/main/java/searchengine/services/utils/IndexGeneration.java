@@ -0,0 +1,19 @@
+package searchengine.services.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class IndexGeneration {
+    // seeded from the startup time so that ETags issued before a restart never match
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+
+    public long get() {
+        return generation.get();
+    }
+
+    public long next() {
+        return generation.incrementAndGet();
+    }
+}
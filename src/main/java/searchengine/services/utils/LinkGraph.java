@@ -0,0 +1,166 @@
+package searchengine.services.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Internal link graph of a site collected during crawling.
+ * Paths are interned into dense node numbers, outgoing links are kept as sorted int arrays.
+ */
+public class LinkGraph {
+    private static final int[] NO_LINKS = new int[0];
+
+    private final Map<String, Integer> nodes = new ConcurrentHashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private final Map<Integer, int[]> links = new ConcurrentHashMap<>();
+
+    public void addLinks(String fromPath, Collection<String> toPaths) {
+        int from = node(fromPath);
+        int[] targets = toPaths.stream()
+                .mapToInt(this::node)
+                .filter(to -> to != from)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        links.put(from, targets);
+    }
+
+    /**
+     * Forgets the outgoing links of a page that no longer exists, the links pointing to it stay.
+     */
+    public void removeLinks(String path) {
+        Integer node = nodes.get(path);
+        if (node != null)
+            links.remove(node);
+    }
+
+    /**
+     * @return whether the outgoing links of the path are known
+     */
+    public boolean contains(String path) {
+        Integer node = nodes.get(path);
+        return node != null && links.containsKey(node);
+    }
+
+    public int size() {
+        synchronized (paths) {
+            return paths.size();
+        }
+    }
+
+    public String path(int node) {
+        synchronized (paths) {
+            return paths.get(node);
+        }
+    }
+
+    public int[] links(int node) {
+        return links.getOrDefault(node, NO_LINKS);
+    }
+
+    public int linkCount() {
+        return links.values().stream().mapToInt(targets -> targets.length).sum();
+    }
+
+    /**
+     * Gzipped node paths followed by the delta-encoded adjacency lists.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(baos))) {
+            int size = size();
+            out.writeInt(size);
+
+            for (int node = 0; node < size; node++) {
+                out.writeUTF(path(node));
+            }
+
+            for (int node = 0; node < size; node++) {
+                // nodes added while the graph is written are left out
+                int[] targets = Arrays.stream(links(node)).filter(target -> target < size).toArray();
+                writeVarInt(out, targets.length);
+
+                int previous = 0;
+                for (int target : targets) {
+                    writeVarInt(out, target - previous);
+                    previous = target;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return baos.toByteArray();
+    }
+
+    /**
+     * Reads a graph written by {@link #toBytes()}. Nodes without outgoing links are restored as unknown.
+     */
+    public static LinkGraph fromBytes(byte[] bytes) {
+        LinkGraph graph = new LinkGraph();
+
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            int size = in.readInt();
+
+            for (int node = 0; node < size; node++) {
+                graph.node(in.readUTF());
+            }
+
+            for (int node = 0; node < size; node++) {
+                int[] targets = new int[readVarInt(in)];
+
+                int previous = 0;
+                for (int i = 0; i < targets.length; i++) {
+                    previous += readVarInt(in);
+                    targets[i] = previous;
+                }
+
+                if (targets.length > 0)
+                    graph.links.put(node, targets);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return graph;
+    }
+
+    private int node(String path) {
+        return nodes.computeIfAbsent(path, key -> {
+            synchronized (paths) {
+                paths.add(key);
+                return paths.size() - 1;
+            }
+        });
+    }
+
+    private void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package searchengine.services.utils;
+
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.exceptions.UnsupportedLanguageException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionaries are loaded on first use, each language in its own task,
+ * and the loaded morphology is shared by all threads.
+ */
+@Component
+public class MorphologyRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologyRegistry.class);
+
+    private static final Map<String, MorphologyFactory> FACTORIES = Map.of(
+            "english", EnglishLuceneMorphology::new,
+            "russian", RussianLuceneMorphology::new);
+
+    private final Map<String, CompletableFuture<LuceneMorphology>> morphologies = new ConcurrentHashMap<>();
+
+    public LuceneMorphology get(String language) {
+        return load(language).join();
+    }
+
+    public CompletableFuture<LuceneMorphology> load(String language) {
+        // Map.of does not accept a null key
+        MorphologyFactory factory = language == null ? null : FACTORIES.get(language);
+        if (factory == null)
+            throw new UnsupportedLanguageException(language);
+
+        CompletableFuture<LuceneMorphology> morphology = morphologies.computeIfAbsent(language,
+                key -> CompletableFuture.supplyAsync(() -> create(key, factory)));
+
+        // a failed load is not cached, so the next call tries again
+        morphology.whenComplete((result, ex) -> {
+            if (ex != null)
+                morphologies.remove(language, morphology);
+        });
+
+        return morphology;
+    }
+
+    public void preload(Collection<String> languages) {
+        languages.stream().distinct().forEach(this::load);
+    }
+
+    private LuceneMorphology create(String language, MorphologyFactory factory) {
+        try {
+            LuceneMorphology morphology = factory.create();
+            LOGGER.info("Morphology dictionary loaded: " + language);
+            return morphology;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MorphologyFactory {
+        LuceneMorphology create() throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package searchengine.services.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SimHash fingerprints of the pages of one site, split into {@code maxDistance + 1} bands.
+ * Two fingerprints within the distance agree on at least one band, so only pages sharing a band are compared.
+ */
+public class NearDuplicateIndex {
+    private final int maxDistance;
+    private final int bandWidth;
+    private final List<Map<Long, List<Fingerprint>>> bands = new ArrayList<>();
+    private int duplicates;
+
+    public NearDuplicateIndex(int maxDistance) {
+        int bandCount = Math.min(64, maxDistance + 1);
+
+        this.maxDistance = maxDistance;
+        this.bandWidth = 64 / bandCount;
+
+        for (int band = 0; band < bandCount; band++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * @return path of an indexed page close to the fingerprint, or {@code null} if the page is new and has been added
+     */
+    public synchronized String findOrAdd(long fingerprint, String path) {
+        String original = find(fingerprint);
+        if (original != null) {
+            duplicates++;
+            return original;
+        }
+
+        add(fingerprint, path);
+        return null;
+    }
+
+    public synchronized void add(long fingerprint, String path) {
+        Fingerprint entry = new Fingerprint(fingerprint, path);
+        for (int band = 0; band < bands.size(); band++) {
+            bands.get(band).computeIfAbsent(bandKey(fingerprint, band), key -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
+    private String find(long fingerprint) {
+        for (int band = 0; band < bands.size(); band++) {
+            List<Fingerprint> candidates = bands.get(band).get(bandKey(fingerprint, band));
+            if (candidates == null)
+                continue;
+
+            for (Fingerprint candidate : candidates) {
+                if (SimHash.distance(candidate.value, fingerprint) <= maxDistance)
+                    return candidate.path;
+            }
+        }
+        return null;
+    }
+
+    private long bandKey(long fingerprint, int band) {
+        // the last band takes the bits left over by the division
+        int shift = band * bandWidth;
+        int width = band == bands.size() - 1 ? 64 - shift : bandWidth;
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        return (fingerprint >>> shift) & mask;
+    }
+
+    private static class Fingerprint {
+        private final long value;
+        private final String path;
+
+        private Fingerprint(long value, String path) {
+            this.value = value;
+            this.path = path;
+        }
+    }
+}
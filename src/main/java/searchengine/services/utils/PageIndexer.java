@@ -0,0 +1,80 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.dto.PageExtract;
+import searchengine.exceptions.PageAbsentException;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repositories.PageRepository;
+import searchengine.services.interfaces.LemmaService;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+@Component
+@RequiredArgsConstructor
+public class PageIndexer {
+    private final PropertiesUtil propertiesUtil;
+    private final WebPageParser webPageParser;
+    private final PageRepository pageRepository;
+    private final PageWriter pageWriter;
+    private final LemmaService lemmaService;
+    private final ChangeRateEstimator changeRateEstimator;
+
+    public Callable<Void> pageIndexingCallable(PageIntrospect pageIntrospect) {
+        String mainUrl = pageIntrospect.getMainUrl();
+        String path = pageIntrospect.getPath();
+        Site site = propertiesUtil.getSiteByUrlInConfig(mainUrl);
+
+        return () -> {
+            try {
+                Page page = pageRepository.findLiveBySiteAndPath(site, path);
+
+                if (page == null) {
+                    webPageParser.parsePage(pageIntrospect);
+                    page = pageRepository.save(webPageParser.getPage(pageIntrospect, site));
+                    lemmaService.saveLemmas(page);
+                } else {
+                    revisit(page, pageIntrospect);
+                }
+
+                return null;
+            } catch (IOException ex) {
+                throw new PageAbsentException(pageIntrospect.getUrl());
+            }
+        };
+    }
+
+    /**
+     * Revalidates a stored page with a conditional request and re-lemmatizes it only if its content hash has changed.
+     * Every revisit goes into the page's change rate estimate.
+     * @return extract of the current document, taken from the stored content if the page is not modified
+     */
+    public PageExtract revisit(Page page, PageIntrospect pageIntrospect) throws IOException, InterruptedException {
+        pageIntrospect.setEtag(page.getEtag());
+        pageIntrospect.setLastModified(page.getLastModified());
+
+        PageExtract extract = webPageParser.parsePage(pageIntrospect);
+        if (extract == null) {
+            changeRateEstimator.recordVisit(page, false);
+            pageWriter.update(page, false);
+            return webPageParser.parseContent(page, pageIntrospect.getUrl());
+        }
+
+        boolean contentChanged = !Objects.equals(page.getContentHash(), pageIntrospect.getContentHash());
+        changeRateEstimator.recordVisit(page, contentChanged);
+        webPageParser.updatePage(page, pageIntrospect);
+        pageWriter.update(page, contentChanged);
+
+        return extract;
+    }
+
+    public void delete(Collection<Integer> pageIds) throws InterruptedException {
+        for (Page page : pageRepository.findAllById(pageIds)) {
+            pageWriter.delete(page);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.springframework.http.HttpStatus;
+import searchengine.dto.PageExtract;
 
 @Getter
 @Setter
@@ -13,6 +14,14 @@ public class PageIntrospect {
     private final String url;
     private HttpStatus code;
     private String content;
+    private String etag;
+    private String lastModified;
+    private String contentHash;
+    private Long fingerprint;
+    private long bodySize;
+    /** Attempt of the fetch if the caller retries transient failures itself. */
+    private int attempt = HttpFetcher.NO_RETRY;
+    private PageExtract extract;
 
     public PageIntrospect(String name, String url) {
         this.name = name;
@@ -0,0 +1,87 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.model.Page;
+import searchengine.repositories.PageRepository;
+import searchengine.services.interfaces.LemmaService;
+
+import java.util.Queue;
+import java.util.concurrent.locks.Lock;
+
+@Component
+@RequiredArgsConstructor
+public class PageWriter {
+    private final PageRepository pageRepository;
+    private final LemmaService lemmaService;
+    private final Queue<Page> pageQueue;
+    private final Lock pageQueueLock;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    public void save(Page page) throws InterruptedException {
+        // ensure other threads wait when a thread captured the monitor provide multi-insert operation
+        pageQueueLock.lockInterruptibly();
+
+        try {
+            if (page.getPath().length() <= 1000) {
+                pageQueue.add(page);
+            }
+            insertPagesIfCountIsMoreThan(batchSize);
+
+        } finally {
+            pageQueueLock.unlock();
+        }
+    }
+
+    /**
+     * Saves a revisited page, its lemmas are rebuilt only if the content has changed.
+     */
+    public void update(Page page, boolean contentChanged) throws InterruptedException {
+        pageQueueLock.lockInterruptibly();
+
+        try {
+            if (contentChanged)
+                lemmaService.decrementLemmaFrequencyOrDelete(page);
+            pageRepository.save(page);
+            if (contentChanged && page.getDuplicateOf() == null)
+                lemmaService.saveLemmas(page);
+
+        } finally {
+            pageQueueLock.unlock();
+        }
+    }
+
+    public void delete(Page page) throws InterruptedException {
+        pageQueueLock.lockInterruptibly();
+
+        try {
+            lemmaService.decrementLemmaFrequencyOrDelete(page);
+            pageRepository.delete(page);
+        } finally {
+            pageQueueLock.unlock();
+        }
+    }
+
+    public void flush() {
+        pageQueueLock.lock();
+
+        try {
+            insertPagesIfCountIsMoreThan(0);
+        } finally {
+            pageQueueLock.unlock();
+        }
+    }
+
+    private void insertPagesIfCountIsMoreThan(int size) {
+        if (pageQueue.size() > size) {
+            pageRepository.saveAll(pageQueue);
+            pageQueue.stream()
+                    .filter(page -> page.getDuplicateOf() == null)
+                    .forEach(lemmaService::saveLemmas);
+            pageQueue.clear();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package searchengine.services.utils;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import searchengine.config.properties.FetcherProperties;
 import searchengine.config.properties.IndexingProperties;
+import searchengine.config.properties.LemmaProperties;
 import searchengine.config.properties.SiteConfig;
 import searchengine.exceptions.SiteConfigAbsentException;
 import searchengine.model.Site;
@@ -20,6 +23,16 @@ public class PropertiesUtil {
     private final IndexingProperties propertiesList;
     private final SiteRepository siteRepository;
     private final SiteService siteService;
+    private final LemmaProperties lemmaProperties;
+    private final FetcherProperties fetcherProperties;
+
+    @PostConstruct
+    private void setDefaultLanguages() {
+        getSitesInConfig()
+                .stream()
+                .filter(siteConfig -> siteConfig.getLanguage() == null)
+                .forEach(siteConfig -> siteConfig.setLanguage(lemmaProperties.getLanguage()));
+    }
 
     public boolean siteIsAvailableInConfig(String url) {
         return getSitesInConfig()
@@ -28,19 +41,19 @@ public class PropertiesUtil {
     }
 
     public List<SiteConfig> getSitesInConfig() {
-        return Optional.of(propertiesList.getSites()).orElse(new ArrayList<>());
+        return Optional.ofNullable(propertiesList.getSites()).orElse(new ArrayList<>());
     }
 
-    public List<SiteConfig> getSitesInConfig(String language) {
-        return propertiesList.getSites()
+    public SiteConfig getSiteConfig(String url) {
+        return getSitesInConfig()
                 .stream()
-                .filter(site -> site.getLanguage().equals(language))
-                .toList();
+                .filter(siteConfig -> siteConfig.getUrl().equals(url))
+                .findFirst()
+                .orElseThrow(() -> new SiteConfigAbsentException(url));
     }
 
     public Site getSiteByUrlInConfig(String url) {
-        Optional<SiteConfig> siteConfigOptional = propertiesList
-                .getSites()
+        Optional<SiteConfig> siteConfigOptional = getSitesInConfig()
                 .stream()
                 .filter(siteConfig -> siteConfig.getUrl().equals(url))
                 .findFirst();
@@ -57,6 +70,18 @@ public class PropertiesUtil {
         }
     }
 
+    /**
+     * Bytes of a page body that are read at most, the site's own cap if its config sets one.
+     */
+    public long getMaxBodySize(String url) {
+        return getSitesInConfig()
+                .stream()
+                .filter(siteConfig -> siteConfig.getUrl().equals(url) && siteConfig.getMaxBodySize() != null)
+                .map(SiteConfig::getMaxBodySize)
+                .findFirst()
+                .orElse(fetcherProperties.getMaxBodySize());
+    }
+
     public boolean checkTypeUrl(String url) {
         List<String> forbiddenTypesList = propertiesList.getForbiddenUrlTypes();
         return forbiddenTypesList == null || forbiddenTypesList.stream().noneMatch(url::contains);
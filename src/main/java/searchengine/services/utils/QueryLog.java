@@ -0,0 +1,84 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.QueryLogProperties;
+import searchengine.dto.LoggedQuery;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@RequiredArgsConstructor
+public class QueryLog {
+    private static final String ALL_SITES = "";
+    private static final char SEPARATOR = '\n';
+
+    private final QueryLogProperties properties;
+
+    // every change of a frequency is atomic for its key, so decay and eviction never lose a concurrent increment
+    private final Map<String, Long> frequencies = new ConcurrentHashMap<>();
+    private final AtomicLong recorded = new AtomicLong();
+
+    public static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public void record(String query, String mainUrl) {
+        String site = mainUrl == null ? ALL_SITES : mainUrl;
+        String key = site + SEPARATOR + normalize(query);
+        frequencies.merge(key, 1L, Long::sum);
+
+        if (frequencies.size() > properties.getMaxEntries())
+            evict(key);
+        if (recorded.incrementAndGet() % properties.getDecayInterval() == 0)
+            decay();
+    }
+
+    public List<LoggedQuery> topQueries(int count) {
+        return frequencies.entrySet()
+                .stream()
+                .map(entry -> toLoggedQuery(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(LoggedQuery::getFrequency).reversed())
+                .limit(count)
+                .toList();
+    }
+
+    // halves every frequency so that old queries fade out
+    private synchronized void decay() {
+        frequencies.keySet().forEach(key -> frequencies.computeIfPresent(key, (k, frequency) -> {
+            long half = frequency / 2;
+            return half == 0 ? null : half;
+        }));
+    }
+
+    // drops the least frequent queries, a tenth of the bound at once so that the sort is not repeated on every new query
+    private synchronized void evict(String recordedKey) {
+        int excess = frequencies.size() - properties.getMaxEntries();
+        if (excess <= 0)
+            return;
+
+        frequencies.entrySet()
+                .stream()
+                .filter(entry -> !entry.getKey().equals(recordedKey))
+                .sorted(Map.Entry.comparingByValue())
+                .limit(excess + properties.getMaxEntries() / 10)
+                .toList()
+                // an entry incremented since it was sorted is kept
+                .forEach(entry -> frequencies.remove(entry.getKey(), entry.getValue()));
+    }
+
+    private LoggedQuery toLoggedQuery(String key, long frequency) {
+        int separator = key.indexOf(SEPARATOR);
+        String site = key.substring(0, separator);
+
+        return new LoggedQuery(
+                key.substring(separator + 1),
+                site.equals(ALL_SITES) ? null : site,
+                frequency);
+    }
+}
@@ -0,0 +1,171 @@
+package searchengine.services.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.RecrawlProperties;
+import searchengine.exceptions.InvalidURLException;
+import searchengine.exceptions.ResponseTooLargeException;
+import searchengine.model.Page;
+import searchengine.repositories.PageRepository;
+import searchengine.services.interfaces.IndexingService;
+import searchengine.services.interfaces.SearchService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the index fresh between full reindexes when {@code recrawl.enabled} is set. Every {@code recrawl.tick} seconds
+ * the pages due by their {@link ChangeRateEstimator} schedule are revisited through {@link PageIndexer#revisit},
+ * at most {@code recrawl.fetches-per-minute} per minute across all sites, the most overdue first.
+ * Revisits respect the host politeness limits and do not mark the engine as indexing, ticks are skipped while it is.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecrawlScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecrawlScheduler.class);
+
+    private final RecrawlProperties properties;
+    private final PageRepository pageRepository;
+    private final PageIndexer pageIndexer;
+    private final HostScheduler hostScheduler;
+    private final IndexingService indexingService;
+    private final IndexGeneration indexGeneration;
+    private final SearchService searchService;
+
+    private ScheduledExecutorService timer;
+    private ExecutorService fetchers;
+    private double quota;
+
+    @PostConstruct
+    private void start() {
+        if (!properties.isEnabled())
+            return;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        fetchers = Executors.newFixedThreadPool(properties.getThreads(),
+                runnable -> new Thread(runnable, "recrawler-" + threadNumber.incrementAndGet()));
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recrawl-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::tick, properties.getTick(), properties.getTick(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        if (timer != null)
+            timer.shutdownNow();
+        if (fetchers != null)
+            fetchers.shutdownNow();
+    }
+
+    private void tick() {
+        // unused fetches carry over, but never more than one minute's worth
+        quota = Math.min(quota + properties.getFetchesPerMinute() * properties.getTick() / 60.0,
+                Math.max(properties.getFetchesPerMinute(), 1));
+        if (indexingService.isIndexing() || quota < 1)
+            return;
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Page> pages = pageRepository.findDueForRevisit(now, now.minus(properties.getInitialInterval()),
+                    PageRequest.of(0, (int) quota));
+            if (pages.isEmpty())
+                return;
+
+            quota -= pages.size();
+            List<Future<Boolean>> revisits = new ArrayList<>(pages.size());
+            pages.forEach(page -> revisits.add(fetchers.submit(() -> revisit(page))));
+
+            int changed = 0;
+            for (Future<Boolean> revisit : revisits) {
+                if (revisit.get())
+                    changed++;
+            }
+
+            if (changed > 0) {
+                indexGeneration.next();
+                searchService.clearCache();
+            }
+            LOGGER.debug("Recrawl: " + pages.size() + " pages are revisited, " + changed + " have changed");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException ex) {
+            LOGGER.warn("Recrawl tick FAILED", ex);
+        }
+    }
+
+    /**
+     * A page that is gone is deleted from the index.
+     * @return {@code true} if the content of the page has changed or the page is deleted
+     */
+    private boolean revisit(Page page) throws InterruptedException {
+        if (indexingService.isIndexing())
+            return false;
+
+        PageIntrospect pageIntrospect = new PageIntrospect(page.getSite().getName(),
+                page.getSite().getUrl() + page.getPath());
+        String host = pageIntrospect.getDomain();
+        String contentHash = page.getContentHash();
+
+        try {
+            hostScheduler.acquire(host).get();
+        } catch (ExecutionException ex) {
+            return false;
+        }
+
+        try {
+            pageIndexer.revisit(page, pageIntrospect);
+            return !Objects.equals(contentHash, page.getContentHash());
+        } catch (HttpStatusException ex) {
+            if (!HttpFetcher.GONE_STATUSES.contains(ex.getStatusCode())) {
+                LOGGER.debug("Page " + pageIntrospect.getUrl() + " is not revisited: HTTP " + ex.getStatusCode());
+                postpone(page);
+                return false;
+            }
+
+            pageIndexer.delete(List.of(page.getId()));
+            LOGGER.debug("Page " + pageIntrospect.getUrl() + " is gone and deleted: HTTP " + ex.getStatusCode());
+            return true;
+        } catch (InvalidURLException | ResponseTooLargeException | IOException ex) {
+            LOGGER.debug("Page " + pageIntrospect.getUrl() + " is not revisited: " + ex.getMessage());
+            postpone(page);
+            return false;
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Page " + pageIntrospect.getUrl() + " is not revisited", ex);
+            postpone(page);
+            return false;
+        } finally {
+            hostScheduler.release(host);
+        }
+    }
+
+    /**
+     * A page that could not be revisited is tried again after the shortest interval instead of on every tick.
+     */
+    private void postpone(Page page) {
+        try {
+            page.setNextVisit(LocalDateTime.now().plus(properties.getMinInterval()));
+            pageRepository.save(page);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Revisit of page " + page.getPath() + " is not postponed", ex);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe access to Redis: every call borrows its own connection from the pool,
+ * batches go through one pipelined round trip. The latency of every command is recorded.
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisClient {
+    private final JedisPool jedisPool;
+    private final Map<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+    public byte[] hget(byte[] key, byte[] field) {
+        return execute("HGET", jedis -> jedis.hget(key, field));
+    }
+
+    public void hset(byte[] key, byte[] field, byte[] value) {
+        execute("HSET", jedis -> jedis.hset(key, field, value));
+    }
+
+    /**
+     * Deletes all the keys with one command.
+     */
+    public void del(Collection<String> keys) {
+        if (keys.isEmpty())
+            return;
+        execute("DEL", jedis -> jedis.del(keys.toArray(String[]::new)));
+    }
+
+    /**
+     * Adds the members with a pipelined SADD each.
+     * @return for every member whether it was not in the set before
+     */
+    public List<Boolean> sadd(String key, List<String> members) {
+        List<Response<Long>> responses = new ArrayList<>(members.size());
+        pipelined("SADD", pipeline -> members.forEach(member -> responses.add(pipeline.sadd(key, member))));
+
+        return responses.stream()
+                .map(response -> response.get() != 0)
+                .toList();
+    }
+
+    public void pipelined(String command, Consumer<Pipeline> commands) {
+        execute(command, jedis -> {
+            try (Pipeline pipeline = jedis.pipelined()) {
+                commands.accept(pipeline);
+                pipeline.sync();
+            }
+            return null;
+        });
+    }
+
+    public <T> T execute(String command, Function<Jedis, T> action) {
+        CommandMetrics metrics = commands.computeIfAbsent(command, key -> new CommandMetrics());
+        long start = System.nanoTime();
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            return action.apply(jedis);
+        } catch (JedisException ex) {
+            metrics.errors.increment();
+            throw ex;
+        } finally {
+            long latency = System.nanoTime() - start;
+            metrics.calls.increment();
+            metrics.latencyNanos.add(latency);
+            metrics.maxLatencyNanos.accumulate(latency);
+        }
+    }
+
+    public Map<String, CommandMetrics> getCommandMetrics() {
+        return commands;
+    }
+
+    public int getActiveConnections() {
+        return jedisPool.getNumActive();
+    }
+
+    public int getIdleConnections() {
+        return jedisPool.getNumIdle();
+    }
+
+    public static class CommandMetrics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getAverageLatencyMillis() {
+            long count = calls.sum();
+            return count == 0 ? 0 : latencyNanos.sum() / 1e6 / count;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos.get() / 1e6;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package searchengine.services.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Rules of robots.txt that apply to every user agent.
+ */
+public class RobotsTxt {
+    public static final RobotsTxt EMPTY = new RobotsTxt(null, List.of(), List.of());
+    // a robots.txt that could not be fetched disallows everything
+    public static final RobotsTxt UNREACHABLE = new RobotsTxt(null, List.of(new Rule("/", false)), List.of());
+
+    private final Duration crawlDelay;
+    private final List<Rule> rules;
+    private final List<String> sitemaps;
+
+    private RobotsTxt(Duration crawlDelay, List<Rule> rules, List<String> sitemaps) {
+        this.crawlDelay = crawlDelay;
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsTxt parse(String content) {
+        Duration crawlDelay = null;
+        List<Rule> rules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        boolean anyAgent = false;
+        boolean agentLines = false;
+
+        for (String line : content.split("\\R")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+
+            int colon = line.indexOf(':');
+            if (colon < 0)
+                continue;
+
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (field.equals("user-agent")) {
+                // consecutive user-agent lines open one group
+                anyAgent = (agentLines && anyAgent) || value.equals("*");
+                agentLines = true;
+                continue;
+            }
+            agentLines = false;
+
+            // sitemaps do not belong to a group
+            if (field.equals("sitemap") && !value.isEmpty()) {
+                sitemaps.add(value);
+                continue;
+            }
+
+            if (!anyAgent)
+                continue;
+
+            switch (field) {
+                case "crawl-delay" -> {
+                    try {
+                        crawlDelay = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+                    } catch (NumberFormatException ignored) {}
+                }
+                case "allow", "disallow" -> {
+                    // an empty disallow allows everything
+                    if (!value.isEmpty())
+                        rules.add(new Rule(value, field.equals("allow")));
+                }
+                default -> {}
+            }
+        }
+
+        return new RobotsTxt(crawlDelay, List.copyOf(rules), List.copyOf(sitemaps));
+    }
+
+    /**
+     * The longest matching rule decides, an allow rule wins a tie.
+     * @param path path of the URL including its query
+     */
+    public boolean isAllowed(String path) {
+        if (path.equals("/robots.txt"))
+            return true;
+
+        Rule decisive = null;
+        for (Rule rule : rules) {
+            if (!rule.matches(path))
+                continue;
+
+            if (decisive == null
+                    || rule.length() > decisive.length()
+                    || (rule.length() == decisive.length() && rule.allow)) {
+                decisive = rule;
+            }
+        }
+
+        return decisive == null || decisive.allow;
+    }
+
+    public Duration getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static class Rule {
+        private final String value;
+        private final boolean allow;
+        private final Pattern pattern;
+
+        private Rule(String value, boolean allow) {
+            this.value = value;
+            this.allow = allow;
+            this.pattern = compile(value);
+        }
+
+        private boolean matches(String path) {
+            return pattern.matcher(path).lookingAt();
+        }
+
+        private int length() {
+            return value.length();
+        }
+
+        /**
+         * {@code *} matches any characters and a trailing {@code $} anchors the end of the path.
+         */
+        private static Pattern compile(String value) {
+            boolean anchored = value.endsWith("$");
+            if (anchored)
+                value = value.substring(0, value.length() - 1);
+
+            StringBuilder regex = new StringBuilder();
+            for (String part : value.split("\\*", -1)) {
+                if (!regex.isEmpty())
+                    regex.append(".*");
+                regex.append(Pattern.quote(part));
+            }
+            if (anchored)
+                regex.append('$');
+
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.DiscoveryProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * robots.txt of the crawled sites, refetched once its TTL expires. The request is sent outside the map,
+ * two callers may fetch the same robots.txt at once and the later one is kept.
+ */
+@Component
+@RequiredArgsConstructor
+public class RobotsTxtCache {
+    private final WebPageParser webPageParser;
+    private final DiscoveryProperties properties;
+
+    private final Map<String, CachedRobotsTxt> cache = new ConcurrentHashMap<>();
+
+    public RobotsTxt get(String mainUrl) {
+        long now = System.nanoTime();
+        long ttl = TimeUnit.SECONDS.toNanos(properties.getRobotsTxtTtl());
+
+        CachedRobotsTxt cached = cache.get(mainUrl);
+        if (cached != null && now - cached.fetchedAt < ttl)
+            return cached.robotsTxt;
+
+        RobotsTxt robotsTxt = webPageParser.getRobotsTxt(mainUrl);
+        cache.put(mainUrl, new CachedRobotsTxt(robotsTxt, now));
+        return robotsTxt;
+    }
+
+    private static class CachedRobotsTxt {
+        private final RobotsTxt robotsTxt;
+        private final long fetchedAt;
+
+        private CachedRobotsTxt(RobotsTxt robotsTxt, long fetchedAt) {
+            this.robotsTxt = robotsTxt;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
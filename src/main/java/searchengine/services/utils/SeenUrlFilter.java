@@ -0,0 +1,162 @@
+package searchengine.services.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * URLs a crawl has already seen, kept as 64-bit fingerprints in an open addressing set, 16 to 32 bytes per URL.
+ * Fingerprints are split into stripes with a lock each, so threads rarely wait for one another.
+ */
+public class SeenUrlFilter {
+    private static final int STRIPES = 16;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public SeenUrlFilter(int expectedUrls) {
+        int capacity = Math.max(expectedUrls / STRIPES, 1024);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * @return {@code true} if the URL has not been seen before, it is marked as seen then
+     */
+    public boolean add(String url) {
+        return add(fingerprint(url));
+    }
+
+    public boolean add(long fingerprint) {
+        Stripe stripe = stripe(fingerprint);
+        synchronized (stripe) {
+            return stripe.add(fingerprint);
+        }
+    }
+
+    public boolean contains(String url) {
+        long fingerprint = fingerprint(url);
+        Stripe stripe = stripe(fingerprint);
+        synchronized (stripe) {
+            return stripe.contains(fingerprint);
+        }
+    }
+
+    public long[] fingerprints() {
+        List<long[]> parts = new ArrayList<>();
+        int size = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                long[] part = stripe.toArray();
+                parts.add(part);
+                size += part.length;
+            }
+        }
+
+        long[] fingerprints = new long[size];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, fingerprints, offset, part.length);
+            offset += part.length;
+        }
+        return fingerprints;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so that every bit depends on the whole URL.
+     */
+    public static long fingerprint(String url) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private Stripe stripe(long fingerprint) {
+        return stripes[(int) (fingerprint >>> 60) & (STRIPES - 1)];
+    }
+
+    /**
+     * Open addressing set of longs kept at most half full, zero marks a free slot and is tracked apart.
+     */
+    private static class Stripe {
+        private long[] table;
+        private boolean containsZero;
+        private int size;
+
+        private Stripe(int capacity) {
+            table = new long[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        }
+
+        private boolean contains(long value) {
+            if (value == 0)
+                return containsZero;
+
+            int mask = table.length - 1;
+            for (int slot = (int) value & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                if (table[slot] == value)
+                    return true;
+            }
+            return false;
+        }
+
+        private boolean add(long value) {
+            if (value == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+
+            if ((size + 1) * 2 > table.length)
+                resize();
+            if (!insert(table, value))
+                return false;
+            size++;
+            return true;
+        }
+
+        private long[] toArray() {
+            long[] values = new long[size + (containsZero ? 1 : 0)];
+            int i = 0;
+            for (long value : table) {
+                if (value != 0)
+                    values[i++] = value;
+            }
+            if (containsZero)
+                values[i] = 0;
+            return values;
+        }
+
+        private void resize() {
+            long[] resized = new long[table.length * 2];
+            for (long value : table) {
+                if (value != 0)
+                    insert(resized, value);
+            }
+            table = resized;
+        }
+
+        private static boolean insert(long[] table, long value) {
+            int mask = table.length - 1;
+            int slot = (int) value & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == value)
+                    return false;
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+            return true;
+        }
+    }
+}
@@ -52,7 +52,7 @@ public class SentenceUtil {
         String[] words = Arrays.stream(splitToWords(sentence, language)).distinct().toArray(String[]::new);
 
         for (String word : words) {
-            String lemma = lemmaService.getFirstNormalForm(word);
+            String lemma = lemmaService.getFirstNormalForm(word, language);
             if (!lemma.isBlank() && lemmaFrequency.containsKey(lemma)) {
                 lemmasInSentence.put(lemma, lemmaFrequency.get(lemma));
                 sentence = StringUtils.replaceIgnoreCase(sentence, word, "<b>" + word + "</b>");
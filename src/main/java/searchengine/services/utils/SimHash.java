@@ -0,0 +1,61 @@
+package searchengine.services.utils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 64-bit SimHash of a text over word shingles. Texts that share most of their shingles
+ * get fingerprints that differ in a few bits only.
+ */
+public class SimHash {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {}
+
+    /**
+     * @return fingerprint of the text, or {@code null} if it has fewer words than one shingle
+     */
+    public static Long fingerprint(String text, int shingleSize) {
+        String[] words = Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+        // short texts would all share a fingerprint and pass for duplicates of each other
+        if (words.length < shingleSize)
+            return null;
+
+        int[] weights = new int[64];
+
+        int shingles = words.length - shingleSize + 1;
+        for (int start = 0; start < shingles; start++) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = start; i < start + shingleSize; i++) {
+                hash = hash(hash, words[i]);
+                hash = hash(hash, " ");
+            }
+
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0)
+                fingerprint |= 1L << bit;
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,770 @@
+package searchengine.services.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.CanonicalizationProperties;
+import searchengine.config.properties.CheckpointProperties;
+import searchengine.config.properties.DiscoveryProperties;
+import searchengine.config.properties.FrontierProperties;
+import searchengine.config.properties.SeenUrlProperties;
+import searchengine.dto.PageExtract;
+import searchengine.dto.SitemapEntry;
+import searchengine.exceptions.InvalidURLException;
+import searchengine.exceptions.ResponseTooLargeException;
+import searchengine.exceptions.RetryableFetchException;
+import searchengine.exceptions.RobotsTxtUnreachableException;
+import searchengine.exceptions.WebParserInterruptedException;
+import searchengine.model.CrawlCheckpoint;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repositories.PageRepository;
+import searchengine.services.interfaces.SiteService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Crawls one site from a priority frontier. The calling thread takes URLs from the frontier
+ * while fewer than {@code maxInFlight} fetches are pending, each fetch runs on the executor shared by all sites
+ * once the host scheduler grants a slot and the crawl budget grants a permit.
+ * The site's budgets ({@code maxPages}, {@code maxDepth}, {@code maxBytes}, {@code maxWallTime}) end the crawl
+ * as complete: no more URLs are taken once one is spent, the fetches in flight finish and {@code budgetNote} tells which.
+ * A transient fetch failure is retried through the host scheduler after a backoff, no thread waits for it.
+ * Every document is parsed once into a {@link PageExtract} and dropped, its links go to the frontier. The frontier is also seeded
+ * from the site's sitemaps, and links disallowed by robots.txt are never enqueued. Seen links are kept in a local
+ * {@link SeenUrlFilter}, a Redis set shared with other nodes is only updated if {@code seen-urls.redis} is enabled.
+ * Pages listed in {@code knownPages} are revisited with conditional requests, those not reached again are deleted
+ * once the crawl completes.
+ * With {@code checkpointing} the frontier, the fetches in flight, the seen URLs and the link graph are saved periodically
+ * and when the crawl is stopped. A crawl given a {@code checkpoint} continues from it: pages already stored
+ * in the generation are not fetched again, the links of those stored after the checkpoint are read from their content.
+ * A crawl without checkpoints given {@code savingGraph} stores just its link graph at the checkpoint interval
+ * and when it is cut short, so that the graph of an interrupted crawl is not lost.
+ */
+@Component
+@Scope("prototype")
+@RequiredArgsConstructor
+@Setter
+public class SiteCrawler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SiteCrawler.class);
+    private final WebPageParser webPageParser;
+    private final PageWriter pageWriter;
+    private final PageIndexer pageIndexer;
+    private final PageRepository pageRepository;
+    private final HostScheduler hostScheduler;
+    private final RobotsTxtCache robotsTxtCache;
+    private final SitemapReader sitemapReader;
+    private final DiscoveryProperties discoveryProperties;
+    private final CanonicalizationProperties canonicalizationProperties;
+    private final FetchMetrics fetchMetrics;
+    private final CrawlCheckpointer crawlCheckpointer;
+    private final CheckpointProperties checkpointProperties;
+    private final SeenUrlProperties seenUrlProperties;
+    private final SiteService siteService;
+    private final RedisClient redisClient;
+    private final FrontierProperties frontierProperties;
+    private final StaticRankCalculator staticRankCalculator;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Set<CompletableFuture<Void>> pendingSlots = ConcurrentHashMap.newKeySet();
+    private final Set<String> visitedPaths = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> workers = new HashSet<>();
+    private final Map<String, Integer> inFlightUrls = new HashMap<>();
+    private final Map<String, Instant> lastModifiedHints = new ConcurrentHashMap<>();
+    private final Set<String> seenVariants = ConcurrentHashMap.newKeySet();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final FetchFailures fetchFailures = new FetchFailures();
+
+    private ExecutorService executor;
+    private CrawlBudget crawlBudget;
+    private int maxInFlight;
+    private LinkGraph linkGraph;
+    private Site site;
+    private int generation;
+    private Map<String, Integer> knownPages = Map.of();
+    private boolean checkpointing;
+    private boolean savingGraph;
+    private CrawlCheckpoint checkpoint;
+    private Integer maxPages;
+    private Integer maxDepth;
+    private Long maxBytes;
+    private Duration maxWallTime;
+
+    private CrawlFrontier frontier;
+    private NearDuplicateIndex nearDuplicates;
+    private SeenUrlFilter seenUrls;
+    private RobotsTxt robotsTxt = RobotsTxt.EMPTY;
+    private int inFlight;
+    private int dispatched;
+    private volatile boolean depthLimited;
+    private volatile boolean stopped;
+
+    @Getter
+    private String budgetNote;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    /**
+     * @return {@code false} if the timeout elapsed before the frontier was exhausted or a budget was spent
+     */
+    public boolean crawl(long timeout, TimeUnit unit) throws WebParserInterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        long wallDeadline = maxWallTime == null ? Long.MAX_VALUE : start + maxWallTime.toNanos();
+        boolean checkpoints = checkpointing && checkpointProperties.isEnabled();
+        Runnable saveProgress = checkpoints ? this::checkpoint
+                : savingGraph && linkGraph != null && checkpointProperties.isEnabled() ? this::saveGraph
+                : null;
+        long interval = TimeUnit.SECONDS.toNanos(checkpointProperties.getInterval());
+        long nextCheckpoint = System.nanoTime() + interval;
+        boolean exhausted = false;
+        boolean budgetReached = false;
+
+        frontier = new CrawlFrontier(frontierProperties);
+        seenUrls = new SeenUrlFilter(seenUrlProperties.getExpectedUrls());
+        PageIntrospect root = new PageIntrospect(site.getUrl() + "/");
+        robotsTxt = robotsTxtCache.get(site.getUrl());
+        // a crawl that may fetch nothing would end as complete and empty
+        if (robotsTxt == RobotsTxt.UNREACHABLE)
+            throw new RobotsTxtUnreachableException(site.getUrl());
+        hostScheduler.setCrawlDelay(root.getDomain(), robotsTxt.getCrawlDelay());
+
+        if (checkpoint != null) {
+            resume();
+        } else {
+            frontier.add(webPageParser.canonicalize(site.getUrl() + "/", root), 0);
+        }
+
+        lock.lock();
+        try {
+            if (discoveryProperties.isSitemaps())
+                seedFromSitemaps();
+
+            while (!stopped) {
+                if (budgetNote == null)
+                    budgetNote = spentBudget(wallDeadline);
+
+                if (inFlight < maxInFlight) {
+                    CrawlFrontier.Entry entry = budgetNote == null ? frontier.poll() : null;
+                    if (entry != null) {
+                        submit(entry.getUrl(), entry.getDepth());
+                        continue;
+                    }
+                    if (inFlight == 0) {
+                        exhausted = budgetNote == null;
+                        budgetReached = !exhausted;
+                        break;
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now >= deadline)
+                    break;
+
+                if (saveProgress != null && now >= nextCheckpoint) {
+                    lock.unlock();
+                    try {
+                        saveProgress.run();
+                    } finally {
+                        lock.lock();
+                    }
+                    nextCheckpoint = System.nanoTime() + interval;
+                    continue;
+                }
+
+                long wakeUp = saveProgress != null ? Math.min(deadline, nextCheckpoint) : deadline;
+                if (budgetNote == null)
+                    wakeUp = Math.min(wakeUp, wallDeadline);
+                changed.awaitNanos(wakeUp - now);
+            }
+        } catch (InterruptedException ex) {
+            throw new WebParserInterruptedException(site.getUrl());
+        } finally {
+            lock.unlock();
+        }
+
+        // pages beyond the depth limit were not reached, so they are kept like those of any other budget
+        if (exhausted && depthLimited) {
+            budgetNote = "max depth " + maxDepth;
+            exhausted = false;
+            budgetReached = true;
+        }
+        if (!exhausted && !budgetReached && saveProgress != null)
+            saveProgress.run();
+        if (budgetNote != null)
+            LOGGER.info("Site " + site.getName() + ": budget reached, " + budgetNote);
+
+        if (seenUrlProperties.isRedis())
+            redisClient.del(List.of(site.getName()));
+        if (nearDuplicates != null && nearDuplicates.getDuplicates() > 0)
+            LOGGER.info("Site " + site.getName() + ": " + nearDuplicates.getDuplicates() + " near-duplicate pages are not indexed");
+        if (exhausted)
+            deleteDisappearedPages();
+        return exhausted || budgetReached || stopped;
+    }
+
+    /**
+     * Cancels pending fetches and interrupts the running ones. The executor is shared,
+     * so fetches already queued on it are skipped when they start.
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        pendingSlots.forEach(slot -> slot.cancel(false));
+
+        lock.lock();
+        try {
+            workers.forEach(Thread::interrupt);
+            changed.signalAll();
+
+            long remaining = TimeUnit.MINUTES.toNanos(1);
+            while (!workers.isEmpty() && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the most frequent reasons of failed fetches, {@code null} if every fetch succeeded
+     */
+    public String getFailureSummary() {
+        return fetchFailures.summary(5);
+    }
+
+    /**
+     * @return description of the first budget spent, {@code null} if none is
+     */
+    private String spentBudget(long wallDeadline) {
+        if (maxPages != null && dispatched >= maxPages)
+            return "max pages " + maxPages;
+        if (maxBytes != null && downloadedBytes.get() >= maxBytes)
+            return "max bytes " + maxBytes;
+        if (System.nanoTime() >= wallDeadline)
+            return "max wall time " + maxWallTime;
+        return null;
+    }
+
+    private void submit(String url, int depth) {
+        inFlight++;
+        dispatched++;
+        inFlightUrls.put(url, depth);
+
+        String host = new PageIntrospect(url).getDomain();
+        schedule(url, depth, 0, host, hostScheduler.acquire(host));
+    }
+
+    private void schedule(String url, int depth, int attempt, String host, CompletableFuture<Void> slot) {
+        pendingSlots.add(slot);
+
+        slot.thenRun(() -> {
+            pendingSlots.remove(slot);
+
+            CompletableFuture<Void> permit = crawlBudget.acquire(this);
+            pendingSlots.add(permit);
+
+            permit.whenComplete((granted, ex) -> {
+                pendingSlots.remove(permit);
+                if (ex == null) {
+                    execute(url, depth, attempt, host);
+                } else {
+                    hostScheduler.release(host);
+                    completed(url);
+                }
+            });
+        });
+    }
+
+    /**
+     * A fetch that failed transiently gives its host slot and permit back and stays in flight
+     * until the host scheduler lets it retry after the backoff.
+     */
+    private void execute(String url, int depth, int attempt, String host) {
+        try {
+            executor.execute(() -> {
+                boolean started = startWork();
+                Duration retryDelay = null;
+                try {
+                    if (started)
+                        retryDelay = crawlPage(url, depth, attempt);
+                } finally {
+                    if (started)
+                        finishWork();
+                    crawlBudget.release();
+                    hostScheduler.release(host);
+                    if (retryDelay != null && !stopped)
+                        schedule(url, depth, attempt + 1, host, hostScheduler.acquire(host, retryDelay));
+                    else
+                        completed(url);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            crawlBudget.release();
+            hostScheduler.release(host);
+            completed(url);
+        }
+    }
+
+    private boolean startWork() {
+        lock.lock();
+        try {
+            if (stopped)
+                return false;
+            workers.add(Thread.currentThread());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finishWork() {
+        lock.lock();
+        try {
+            workers.remove(Thread.currentThread());
+            Thread.interrupted(); // the thread goes back to the shared pool
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the sitemaps on the executor and enqueues their URLs in one batch, the most recently modified first.
+     * Counts as a fetch in flight, so the crawl does not finish before the seeds are in the frontier.
+     * The politeness slots the reader waits for are pending like those of the fetches, so stopping cancels them.
+     */
+    private void seedFromSitemaps() {
+        inFlight++;
+
+        List<String> sitemaps = robotsTxt.getSitemaps().isEmpty()
+                ? List.of(site.getUrl() + "/sitemap.xml")
+                : robotsTxt.getSitemaps();
+        PageIntrospect root = new PageIntrospect(site.getName(), site.getUrl() + "/");
+
+        sitemapReader.read(sitemaps, executor, slot -> {
+            pendingSlots.add(slot);
+            slot.whenComplete((granted, ex) -> pendingSlots.remove(slot));
+            if (stopped)
+                slot.cancel(false);
+        }).whenComplete((entries, failure) -> {
+            try {
+                if (failure == null)
+                    seed(entries, root);
+                else if (!stopped)
+                    LOGGER.warn("Sitemaps of site " + site.getName() + " are skipped", failure);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Sitemaps of site " + site.getName() + " are skipped", ex);
+            } finally {
+                completed();
+            }
+        });
+    }
+
+    private void seed(List<SitemapEntry> sitemapEntries, PageIntrospect root) {
+        List<SitemapEntry> entries = sitemapEntries
+                .stream()
+                .filter(entry -> entry.getUrl().startsWith(site.getUrl() + "/"))
+                .toList();
+        entries.stream()
+                .filter(entry -> entry.getLastModified() != null)
+                .forEach(entry -> lastModifiedHints.merge(
+                        new PageIntrospect(webPageParser.canonicalize(entry.getUrl(), root)).getPath(),
+                        entry.getLastModified(),
+                        (first, second) -> first.isAfter(second) ? first : second));
+
+        List<String> urls = entries.stream()
+                .sorted(Comparator.comparing(SitemapEntry::getLastModified,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .map(SitemapEntry::getUrl)
+                .toList();
+
+        Collection<String> links = enqueue(webPageParser.internalUrls(urls, root), root, 1);
+        LOGGER.debug("Site " + site.getName() + ": " + links.size() + " URLs seeded from sitemaps");
+    }
+
+    private void completed(String url) {
+        lock.lock();
+        try {
+            inFlightUrls.remove(url);
+            completed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void completed() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Snapshots the crawl under the lock, so every URL in the seen set is either pending or done.
+     * Pages fetched before the snapshot are flushed first, a resumed crawl finds them stored.
+     */
+    private void checkpoint() {
+        try {
+            Map<String, Integer> pending;
+            long[] seen;
+            byte[] graph;
+
+            lock.lock();
+            try {
+                pending = new LinkedHashMap<>(inFlightUrls);
+                pending.putAll(frontier.toMap());
+                seen = seenUrls.fingerprints();
+                graph = linkGraph == null ? null : linkGraph.toBytes();
+            } finally {
+                lock.unlock();
+            }
+
+            pageWriter.flush();
+            crawlCheckpointer.save(site, generation, pending, seen, graph);
+            LOGGER.debug("Site " + site.getName() + ": checkpoint with " + pending.size() + " pending URLs is saved");
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Checkpoint of site " + site.getName() + " is skipped", ex);
+        }
+    }
+
+    private void saveGraph() {
+        try {
+            staticRankCalculator.saveGraph(site, linkGraph);
+            LOGGER.debug("Site " + site.getName() + ": link graph with " + linkGraph.size() + " pages is saved");
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Link graph of site " + site.getName() + " is not saved", ex);
+        }
+    }
+
+    /**
+     * Restores the seen set and the frontier. Stored pages that were pending or whose links are not in the
+     * checkpointed graph may have undiscovered links, they are parsed from their content instead of being fetched.
+     */
+    private void resume() {
+        PageIntrospect root = new PageIntrospect(site.getName(), site.getUrl() + "/");
+        String name = site.getName();
+
+        Map<String, Integer> pending = crawlCheckpointer.pending(checkpoint.getFrontier());
+        Set<String> pendingUrls = pending.keySet();
+        Set<String> storedPaths = new HashSet<>();
+        List<Integer> replayIds = new ArrayList<>();
+
+        for (long fingerprint : crawlCheckpointer.fingerprints(checkpoint.getSeen())) {
+            seenUrls.add(fingerprint);
+        }
+        addSeen(name, new ArrayList<>(pendingUrls));
+
+        List<Page> batch;
+        int number = 0;
+        do {
+            batch = pageRepository.findAllBySiteAndGeneration(site, generation,
+                    PageRequest.of(number++, batchSize, Sort.by("id")));
+
+            List<String> urls = new ArrayList<>();
+            for (Page page : batch) {
+                String url = webPageParser.canonicalize(site.getUrl() + page.getPath(), root);
+                storedPaths.add(page.getPath());
+                urls.add(url);
+
+                if (nearDuplicates != null && page.getDuplicateOf() == null && page.getFingerprint() != null)
+                    nearDuplicates.add(page.getFingerprint(), page.getPath());
+                if (pendingUrls.contains(url) || linkGraph == null || !linkGraph.contains(page.getPath()))
+                    replayIds.add(page.getId());
+            }
+            addSeen(name, urls);
+        } while (batch.size() == batchSize && !stopped);
+
+        for (int from = 0; from < replayIds.size() && !stopped; from += batchSize) {
+            pageRepository.findAllById(replayIds.subList(from, Math.min(from + batchSize, replayIds.size())))
+                    .forEach(page -> {
+                        PageIntrospect stored = new PageIntrospect(name, site.getUrl() + page.getPath());
+                        // pages stored after the checkpoint have no known depth, their links count as one level deep
+                        int depth = pending.getOrDefault(webPageParser.canonicalize(stored.getUrl(), root), 0) + 1;
+                        followLinks(webPageParser.parseContent(page, stored.getUrl()).getLinks(), stored, depth);
+                    });
+        }
+
+        String rootUrl = webPageParser.canonicalize(site.getUrl() + "/", root);
+
+        lock.lock();
+        try {
+            if (!storedPaths.contains(new PageIntrospect(rootUrl).getPath()) && !pendingUrls.contains(rootUrl))
+                frontier.add(rootUrl, 0);
+            pending.forEach((url, depth) -> {
+                if (!storedPaths.contains(new PageIntrospect(url).getPath()))
+                    frontier.add(url, depth);
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        LOGGER.info("Site " + name + " is resumed: " + storedPaths.size() + " pages are stored, "
+                + frontier.size() + " URLs are pending, " + replayIds.size() + " pages are parsed again");
+    }
+
+    private void addSeen(String name, List<String> urls) {
+        urls.forEach(seenUrls::add);
+        if (seenUrlProperties.isRedis())
+            sharedNewLinks(name, urls);
+    }
+
+    /**
+     * @return delay before the page is fetched again, {@code null} if it is done
+     */
+    private Duration crawlPage(String url, int depth, int attempt) {
+        PageIntrospect page = new PageIntrospect(site.getName(), url);
+        page.setAttempt(attempt);
+
+        try {
+            PageExtract extract = fetch(page, depth);
+            downloadedBytes.addAndGet(page.getBodySize());
+            siteService.updateSiteStatusTime(site);
+
+            Collection<String> rawLinks = extract.getLinks();
+            Collection<String> newLinks = followLinks(rawLinks, page, depth + 1);
+            countSavedFetches(rawLinks, newLinks, page);
+
+        } catch (UnsupportedMimeTypeException | InvalidURLException | ResponseTooLargeException ignored) {
+        } catch (RetryableFetchException ex) {
+            LOGGER.debug(ex.getMessage());
+            return ex.getRetryDelay();
+        } catch (HttpStatusException ex) {
+            // only a definitive status tells that the page is gone, after a transient one it is kept
+            if (!HttpFetcher.GONE_STATUSES.contains(ex.getStatusCode()))
+                visitedPaths.add(page.getPath());
+            fetchFailures.record(ex);
+        } catch (IOException ex) {
+            // the page may still exist, it is kept until a crawl reaches it again
+            visitedPaths.add(page.getPath());
+            fetchFailures.record(ex);
+            LOGGER.debug("Page " + url + " is not fetched: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            visitedPaths.add(page.getPath());
+            LOGGER.warn("Page " + url + " is skipped", ex);
+        }
+        return null;
+    }
+
+    private PageExtract fetch(PageIntrospect page, int depth) throws IOException, InterruptedException {
+        Integer pageId = knownPages.get(page.getPath());
+        Page stored = pageId == null ? null : pageRepository.findById(pageId).orElse(null);
+
+        if (stored == null) {
+            PageExtract extract = webPageParser.parsePage(page);
+
+            String canonicalUrl = canonicalizationProperties.isRelCanonical()
+                    ? webPageParser.declaredCanonicalUrl(extract, page)
+                    : null;
+            if (canonicalUrl != null && !canonicalUrl.equals(page.getUrl()) && webPageParser.isInternal(canonicalUrl, page)) {
+                // the page is a duplicate, only the URL it points to gets indexed
+                enqueue(List.of(canonicalUrl), page, depth);
+                return extract;
+            }
+
+            Page newPage = webPageParser.getPage(page, site);
+            newPage.setGeneration(generation);
+            if (nearDuplicates != null && newPage.getFingerprint() != null)
+                newPage.setDuplicateOf(nearDuplicates.findOrAdd(newPage.getFingerprint(), newPage.getPath()));
+            pageWriter.save(newPage);
+            visitedPaths.add(page.getPath());
+            return extract;
+        }
+
+        PageExtract extract = isUnchangedBySitemap(stored)
+                ? webPageParser.parseContent(stored, page.getUrl())
+                : pageIndexer.revisit(stored, page);
+        visitedPaths.add(page.getPath());
+
+        // known pages keep their state, they only become originals for the new ones
+        if (nearDuplicates != null && stored.getDuplicateOf() == null) {
+            Long fingerprint = stored.getFingerprint() != null
+                    ? stored.getFingerprint()
+                    : webPageParser.fingerprint(extract.getText());
+            if (fingerprint != null)
+                nearDuplicates.add(fingerprint, stored.getPath());
+        }
+        return extract;
+    }
+
+    /**
+     * A sitemap lastmod that is not newer than the stored Last-Modified spares the request.
+     */
+    private boolean isUnchangedBySitemap(Page stored) {
+        Instant hint = lastModifiedHints.get(stored.getPath());
+        if (hint == null || stored.getLastModified() == null)
+            return false;
+
+        try {
+            Instant lastModified = ZonedDateTime.parse(stored.getLastModified(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant();
+            return !hint.isAfter(lastModified);
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * A variant of a link that differs from its canonical form would have been fetched once more
+     * unless the canonical URL entered the frontier through the variant itself.
+     */
+    private void countSavedFetches(Collection<String> rawLinks, Collection<String> newLinks, PageIntrospect page) {
+        Set<String> enqueued = new HashSet<>(newLinks);
+
+        for (String raw : rawLinks) {
+            String canonical = webPageParser.canonicalize(raw, page);
+
+            if (raw.equals(canonical) || !webPageParser.isInternal(raw, page) || !seenVariants.add(raw))
+                continue;
+            if (enqueued.remove(canonical))
+                continue;
+
+            fetchMetrics.recordSavedFetch(page.getDomain());
+        }
+    }
+
+    private void deleteDisappearedPages() {
+        List<Map.Entry<String, Integer>> disappeared = knownPages.entrySet()
+                .stream()
+                .filter(entry -> !visitedPaths.contains(entry.getKey()))
+                .toList();
+
+        if (disappeared.isEmpty())
+            return;
+
+        if (linkGraph != null)
+            disappeared.forEach(entry -> linkGraph.removeLinks(entry.getKey()));
+        List<Integer> pageIds = disappeared.stream().map(Map.Entry::getValue).toList();
+
+        try {
+            pageIndexer.delete(pageIds);
+            LOGGER.info("Site " + site.getName() + ": " + pageIds.size() + " disappeared pages are deleted");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds the page's links to the link graph and enqueues those not seen yet at {@code depth}.
+     */
+    private Collection<String> followLinks(Collection<String> rawLinks, PageIntrospect page, int depth) {
+        Collection<String> links = webPageParser.internalUrls(rawLinks, page);
+        if (linkGraph != null) {
+            linkGraph.addLinks(page.getPath(), links.stream()
+                    .map(link -> new PageIntrospect(link).getPath())
+                    .toList());
+        }
+
+        return enqueue(links, page, depth);
+    }
+
+    /**
+     * Links are marked as seen and queued under the lock, so a checkpoint never holds one without the other.
+     * Links already queued gain priority, links beyond {@code maxDepth} are not followed.
+     * A crawl shared through Redis asks the Redis set between two holds of the lock,
+     * the other fetch threads of the site do not wait for the round trip.
+     * @return the enqueued links
+     */
+    private Collection<String> enqueue(Collection<String> links, PageIntrospect page, int depth) {
+        boolean shared = seenUrlProperties.isRedis();
+        List<String> newLinks;
+
+        lock.lock();
+        try {
+            frontier.addInlinks(links);
+
+            if (maxDepth != null && depth > maxDepth) {
+                if (links.stream().anyMatch(link -> !seenUrls.contains(link)))
+                    depthLimited = true;
+                return List.of();
+            }
+
+            newLinks = validLinks(links, page, shared);
+            if (!shared) {
+                frontier.addAll(newLinks, depth);
+                return newLinks;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<String> sharedLinks = sharedNewLinks(page.getName(), newLinks);
+
+        lock.lock();
+        try {
+            newLinks.forEach(seenUrls::add);
+            frontier.addAll(sharedLinks, depth);
+            return sharedLinks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param shared whether the Redis set decides which links are new, they are only checked against the local set then
+     */
+    private List<String> validLinks(Collection<String> links, PageIntrospect page, boolean shared) {
+        String mainUrl = page.getMainUrl() + "/";
+        String url = page.getUrl();
+
+        return links.stream()
+                .filter(link -> !link.equals(mainUrl) && !link.equals(url))
+                .filter(link -> robotsTxt.isAllowed(new PageIntrospect(link).getPath()))
+                .filter(link -> shared ? !seenUrls.contains(link) : seenUrls.add(link))
+                .toList();
+    }
+
+    /**
+     * Crawlers on other nodes, and other threads of this one, may have taken some of the links already,
+     * the Redis set decides for all of them in one pipelined round trip.
+     */
+    private List<String> sharedNewLinks(String name, List<String> links) {
+        if (links.isEmpty())
+            return links;
+
+        List<Boolean> added = redisClient.sadd(name, links);
+        return IntStream.range(0, links.size())
+                .filter(added::get)
+                .mapToObj(links::get)
+                .toList();
+    }
+}
@@ -0,0 +1,193 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.DiscoveryProperties;
+import searchengine.dto.SitemapEntry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads sitemaps and sitemap indexes with a streaming parser, gzipped files are unpacked on the fly.
+ * Sitemaps are read one after another without blocking a thread on the politeness slot of their host,
+ * the slot is held only while the file downloads.
+ */
+@Component
+@RequiredArgsConstructor
+public class SitemapReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SitemapReader.class);
+    // the size limit of the sitemap protocol
+    private static final int MAX_SITEMAP_SIZE = 50 * 1024 * 1024;
+
+    private final HttpFetcher httpFetcher;
+    private final HostScheduler hostScheduler;
+    private final DiscoveryProperties properties;
+
+    private final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    /**
+     * @param executor runs the downloads and the parsing
+     * @param slots receives the politeness slot of each sitemap before it is waited for, so that the caller can cancel it
+     * @return the entries, a cancelled slot completes it exceptionally
+     */
+    public CompletableFuture<List<SitemapEntry>> read(Collection<String> sitemapUrls, Executor executor,
+                                                      Consumer<CompletableFuture<Void>> slots) {
+        List<SitemapEntry> entries = new ArrayList<>();
+        return read(sitemapUrls, entries, 0, executor, slots).thenApply(done -> entries);
+    }
+
+    private CompletableFuture<Void> read(Collection<String> sitemapUrls, List<SitemapEntry> entries, int depth,
+                                         Executor executor, Consumer<CompletableFuture<Void>> slots) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+
+        for (String sitemapUrl : sitemapUrls) {
+            chain = chain.thenCompose(done -> {
+                if (entries.size() >= properties.getMaxSitemapUrls())
+                    return CompletableFuture.completedFuture(null);
+
+                List<String> nested = new ArrayList<>();
+                return download(sitemapUrl, executor, slots)
+                        .thenAccept(body -> parse(sitemapUrl, body, entries, nested))
+                        .thenCompose(parsed -> !nested.isEmpty() && depth < properties.getMaxSitemapDepth()
+                                ? read(nested, entries, depth + 1, executor, slots)
+                                : CompletableFuture.completedFuture(null));
+            });
+        }
+
+        return chain;
+    }
+
+    /**
+     * @return the body of the sitemap, {@code null} if it is missing or cannot be fetched
+     */
+    private CompletableFuture<byte[]> download(String sitemapUrl, Executor executor,
+                                               Consumer<CompletableFuture<Void>> slots) {
+        String host = URI.create(sitemapUrl).getHost();
+        CompletableFuture<Void> slot = hostScheduler.acquire(host);
+        slots.accept(slot);
+
+        return slot.thenCompose(granted -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return httpFetcher.fetch(sitemapUrl, Map.of(), (response, body) ->
+                                response.statusCode() == 200 ? body.readNBytes(MAX_SITEMAP_SIZE) : null);
+                    } catch (IOException | RuntimeException ex) {
+                        LOGGER.debug("Sitemap " + sitemapUrl + " is skipped: " + ex.getMessage());
+                        return null;
+                    } finally {
+                        hostScheduler.release(host);
+                    }
+                }, executor);
+            } catch (RejectedExecutionException ex) {
+                hostScheduler.release(host);
+                throw ex;
+            }
+        });
+    }
+
+    private void parse(String sitemapUrl, byte[] body, List<SitemapEntry> entries, List<String> nested) {
+        if (body == null)
+            return;
+
+        try {
+            parse(unpack(new ByteArrayInputStream(body)), entries, nested);
+        } catch (IOException | XMLStreamException | RuntimeException ex) {
+            LOGGER.debug("Sitemap " + sitemapUrl + " is skipped: " + ex.getMessage());
+        }
+    }
+
+    private void parse(InputStream in, List<SitemapEntry> entries, List<String> nested) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+
+        try {
+            String loc = null;
+            String lastmod = null;
+
+            while (reader.hasNext() && entries.size() < properties.getMaxSitemapUrls()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "url", "sitemap" -> {
+                            loc = null;
+                            lastmod = null;
+                        }
+                        case "loc" -> loc = reader.getElementText().trim();
+                        case "lastmod" -> lastmod = reader.getElementText().trim();
+                        default -> {}
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && loc != null) {
+                    switch (reader.getLocalName()) {
+                        case "url" -> entries.add(new SitemapEntry(loc, parseLastmod(lastmod)));
+                        case "sitemap" -> nested.add(loc);
+                        default -> {}
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Sitemaps named *.xml.gz come as gzip files rather than with a gzip content encoding.
+     */
+    private InputStream unpack(InputStream body) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(in) : in;
+    }
+
+    private Instant parseLastmod(String lastmod) {
+        if (lastmod == null || lastmod.isEmpty())
+            return null;
+
+        try {
+            return OffsetDateTime.parse(lastmod).toInstant();
+        } catch (DateTimeParseException ignored) {}
+
+        try {
+            return LocalDate.parse(lastmod.substring(0, Math.min(10, lastmod.length())))
+                    .atStartOfDay(ZoneOffset.UTC)
+                    .toInstant();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
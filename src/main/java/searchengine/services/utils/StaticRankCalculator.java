@@ -0,0 +1,154 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.StaticRankProperties;
+import searchengine.dto.PagePath;
+import searchengine.model.Site;
+import searchengine.model.SiteLinkGraph;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteLinkGraphRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Component
+@RequiredArgsConstructor
+public class StaticRankCalculator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticRankCalculator.class);
+
+    private final StaticRankProperties properties;
+    private final SiteLinkGraphRepository linkGraphRepository;
+    private final PageRepository pageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    /**
+     * Ranks the pages of the given generation, a new generation is ranked before it goes live.
+     */
+    public void rankPages(Site site, Integer generation, LinkGraph graph) {
+        saveGraph(site, graph);
+        saveRanks(site, generation, graph, pageRank(graph));
+        LOGGER.debug("Static rank of " + graph.size() + " pages computed for site " + site.getName());
+    }
+
+    /**
+     * @return the graph stored for the site by the last ranking or crawl, an empty one if there is none
+     */
+    public LinkGraph loadGraph(Site site) {
+        return linkGraphRepository.findById(site.getId())
+                .map(stored -> LinkGraph.fromBytes(stored.getData()))
+                .orElseGet(LinkGraph::new);
+    }
+
+    public void saveGraph(Site site, LinkGraph graph) {
+        SiteLinkGraph siteLinkGraph = new SiteLinkGraph();
+        siteLinkGraph.setSiteId(site.getId());
+        siteLinkGraph.setNodes(graph.size());
+        siteLinkGraph.setLinks(graph.linkCount());
+        siteLinkGraph.setData(graph.toBytes());
+
+        linkGraphRepository.save(siteLinkGraph);
+    }
+
+    private void saveRanks(Site site, Integer generation, LinkGraph graph, double[] ranks) {
+        Map<String, Integer> nodes = IntStream.range(0, ranks.length)
+                .boxed()
+                .collect(Collectors.toMap(graph::path, node -> node));
+
+        List<Object[]> updates = new ArrayList<>();
+        for (PagePath page : pageRepository.findAllPathsBySiteAndGeneration(site, generation)) {
+            Integer node = nodes.get(page.getPath());
+            if (node != null)
+                updates.add(new Object[] {(float) ranks[node], page.getId()});
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE page SET static_rank = ? WHERE id = ?", updates, batchSize,
+                (statement, update) -> {
+                    statement.setFloat(1, (Float) update[0]);
+                    statement.setInt(2, (Integer) update[1]);
+                });
+    }
+
+    /**
+     * Power iteration of PageRank over in-links, every iteration is computed in parallel.
+     * Ranks are scaled so that the best page of the site gets 1.
+     */
+    private double[] pageRank(LinkGraph graph) {
+        int size = graph.size();
+        if (size == 0)
+            return new double[0];
+
+        int[] outDegree = new int[size];
+        int[] offsets = new int[size + 1];
+
+        for (int node = 0; node < size; node++) {
+            int[] targets = graph.links(node);
+            outDegree[node] = targets.length;
+            for (int target : targets) {
+                offsets[target + 1]++;
+            }
+        }
+        for (int node = 0; node < size; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        int[] sources = new int[offsets[size]];
+        int[] position = Arrays.copyOf(offsets, size);
+        for (int node = 0; node < size; node++) {
+            for (int target : graph.links(node)) {
+                sources[position[target]++] = node;
+            }
+        }
+
+        double damping = properties.getDamping();
+        double[] rank = new double[size];
+        Arrays.fill(rank, 1.0 / size);
+
+        for (int iteration = 0; iteration < properties.getMaxIterations(); iteration++) {
+            double[] current = rank;
+            double[] next = new double[size];
+
+            double dangling = IntStream.range(0, size)
+                    .parallel()
+                    .filter(node -> outDegree[node] == 0)
+                    .mapToDouble(node -> current[node])
+                    .sum();
+            double base = (1 - damping + damping * dangling) / size;
+
+            IntStream.range(0, size).parallel().forEach(node -> {
+                double sum = 0.0;
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    sum += current[sources[i]] / outDegree[sources[i]];
+                }
+                next[node] = base + damping * sum;
+            });
+
+            double delta = IntStream.range(0, size)
+                    .parallel()
+                    .mapToDouble(node -> Math.abs(next[node] - current[node]))
+                    .sum();
+
+            rank = next;
+            if (delta < properties.getTolerance())
+                break;
+        }
+
+        double max = Arrays.stream(rank).max().orElse(1.0);
+        for (int node = 0; node < size; node++) {
+            rank[node] /= max;
+        }
+
+        return rank;
+    }
+}
@@ -0,0 +1,201 @@
+package searchengine.services.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import searchengine.model.Site;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Frontier of the crawls shared by several nodes, kept in Redis. Every site being crawled has a stream of URLs
+ * read by the {@code crawlers} consumer group, a set of the URLs seen, a counter of the URLs queued or being crawled
+ * and a hash of the links found on its pages. The hash {@code crawl:sites} lists the sites being crawled.
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamFrontier {
+    private static final String GROUP = "crawlers";
+    private static final String SITES_KEY = "crawl:sites";
+    private static final String URL_FIELD = "url";
+    // KEYS: seen set, pending counter, stream. ARGV: the URLs. Returns the URLs queued
+    private static final String ADD_NEW_SCRIPT = """
+            local added = {}
+            for _, url in ipairs(ARGV) do
+                if redis.call('SADD', KEYS[1], url) == 1 then
+                    added[#added + 1] = url
+                end
+            end
+            if #added > 0 then
+                redis.call('INCRBY', KEYS[2], #added)
+                for _, url in ipairs(added) do
+                    redis.call('XADD', KEYS[3], '*', '%s', url)
+                end
+            end
+            return added
+            """.formatted(URL_FIELD);
+
+    private final RedisClient redisClient;
+
+    public void open(Site site, int generation) {
+        String name = site.getName();
+        redisClient.del(keys(name));
+        redisClient.execute("XGROUP", jedis -> jedis.xgroupCreate(streamKey(name), GROUP, new StreamEntryID(), true));
+        redisClient.execute("HSET", jedis -> jedis.hset(SITES_KEY, name, site.getId() + ":" + generation));
+    }
+
+    public void close(String name) {
+        redisClient.execute("HDEL", jedis -> jedis.hdel(SITES_KEY, name));
+        redisClient.del(keys(name));
+    }
+
+    /**
+     * @return crawls in progress by site name
+     */
+    public Map<String, ActiveCrawl> getActiveCrawls() {
+        Map<String, String> sites = redisClient.execute("HGETALL", jedis -> jedis.hgetAll(SITES_KEY));
+        Map<String, ActiveCrawl> crawls = new HashMap<>();
+
+        sites.forEach((name, value) -> {
+            String[] parts = value.split(":");
+            crawls.put(name, new ActiveCrawl(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+        });
+        return crawls;
+    }
+
+    /**
+     * Marks the URLs as seen and queues those no node has seen before. One script does both, so a URL is never
+     * seen without being queued, even if the node dies meanwhile. The counter grows before the URLs are in the stream,
+     * so it never reaches zero while some of them are left.
+     * @return the queued URLs
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> addNew(String name, List<String> urls) {
+        if (urls.isEmpty())
+            return urls;
+
+        List<String> keys = List.of(seenKey(name), pendingKey(name), streamKey(name));
+        return (List<String>) redisClient.execute("EVAL", jedis -> jedis.eval(ADD_NEW_SCRIPT, keys, urls));
+    }
+
+    /**
+     * Reads URLs never delivered to the group from the streams of all the sites, blocking for up to {@code blockMillis}.
+     * @return claimed entries by site name
+     */
+    public Map<String, List<StreamEntry>> claim(Collection<String> names, String consumer, int count, int blockMillis) {
+        Map<String, StreamEntryID> streams = new HashMap<>();
+        Map<String, String> siteNames = new HashMap<>();
+        for (String name : names) {
+            streams.put(streamKey(name), StreamEntryID.UNRECEIVED_ENTRY);
+            siteNames.put(streamKey(name), name);
+        }
+
+        List<Map.Entry<String, List<StreamEntry>>> result = redisClient.execute("XREADGROUP", jedis -> jedis.xreadGroup(
+                GROUP, consumer, XReadGroupParams.xReadGroupParams().count(count).block(blockMillis), streams));
+
+        Map<String, List<StreamEntry>> claimed = new HashMap<>();
+        if (result != null)
+            result.forEach(entry -> claimed.put(siteNames.get(entry.getKey()), entry.getValue()));
+        return claimed;
+    }
+
+    /**
+     * Takes over URLs that other consumers claimed more than {@code minIdleMillis} ago without acknowledging them.
+     */
+    public List<StreamEntry> reclaim(String name, String consumer, long minIdleMillis, int count) {
+        Map.Entry<StreamEntryID, List<StreamEntry>> result = redisClient.execute("XAUTOCLAIM", jedis -> jedis.xautoclaim(
+                streamKey(name), GROUP, consumer, minIdleMillis, new StreamEntryID(),
+                XAutoClaimParams.xAutoClaimParams().count(count)));
+
+        // entries deleted while pending come back empty from older servers
+        return result.getValue()
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Acknowledges the crawled entries and stores the links of their pages. The counter is decreased only by the
+     * entries this call acknowledged, an entry crawled twice after being reclaimed is counted once.
+     */
+    public void complete(String name, List<StreamEntryID> ids, Map<String, String> links) {
+        if (ids.isEmpty())
+            return;
+
+        StreamEntryID[] entryIds = ids.toArray(StreamEntryID[]::new);
+        redisClient.execute("XACK", jedis -> {
+            long acknowledged = jedis.xack(streamKey(name), GROUP, entryIds);
+
+            try (Pipeline pipeline = jedis.pipelined()) {
+                pipeline.xdel(streamKey(name), entryIds);
+                if (!links.isEmpty())
+                    pipeline.hset(linksKey(name), links);
+                if (acknowledged > 0)
+                    pipeline.decrBy(pendingKey(name), acknowledged);
+                pipeline.sync();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return number of URLs queued or being crawled
+     */
+    public long getPending(String name) {
+        String pending = redisClient.execute("GET", jedis -> jedis.get(pendingKey(name)));
+        return pending == null ? 0 : Long.parseLong(pending);
+    }
+
+    /**
+     * @return paths of the site's internal links by the path of the page they were found on, separated by new lines
+     */
+    public Map<String, String> getLinks(String name) {
+        return redisClient.execute("HGETALL", jedis -> jedis.hgetAll(linksKey(name)));
+    }
+
+    public static String getUrl(StreamEntry entry) {
+        return entry.getFields().get(URL_FIELD);
+    }
+
+    private List<String> keys(String name) {
+        List<String> keys = new ArrayList<>();
+        keys.add(streamKey(name));
+        keys.add(seenKey(name));
+        keys.add(pendingKey(name));
+        keys.add(linksKey(name));
+        return keys;
+    }
+
+    private String streamKey(String name) {
+        return "crawl:" + name + ":stream";
+    }
+
+    private String seenKey(String name) {
+        return "crawl:" + name + ":seen";
+    }
+
+    private String pendingKey(String name) {
+        return "crawl:" + name + ":pending";
+    }
+
+    private String linksKey(String name) {
+        return "crawl:" + name + ":links";
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class ActiveCrawl {
+        private final int siteId;
+        private final int generation;
+    }
+}
@@ -0,0 +1,111 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.CanonicalizationProperties;
+import searchengine.config.properties.CanonicalizationProperties.TrailingSlash;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the variants of a URL to one form before deduplication, so that every page is fetched once.
+ */
+@Component
+@RequiredArgsConstructor
+public class UrlCanonicalizer {
+    private final CanonicalizationProperties properties;
+
+    /**
+     * @param mainUrl main URL of the site, its scheme and host are preferred for the www and non-www variants
+     * @return the URL unchanged if it cannot be parsed
+     */
+    public String canonicalize(String url, String mainUrl) {
+        if (!properties.isEnabled())
+            return url;
+
+        try {
+            URI uri = new URI(url).normalize();
+            String scheme = uri.getScheme();
+            String host = uri.getHost();
+
+            if (scheme == null || host == null)
+                return url;
+
+            scheme = scheme.toLowerCase(Locale.ROOT);
+            host = host.toLowerCase(Locale.ROOT);
+            int port = isDefaultPort(scheme, uri.getPort()) ? -1 : uri.getPort();
+
+            URI main = new URI(mainUrl);
+            String mainHost = main.getHost() == null ? null : main.getHost().toLowerCase(Locale.ROOT);
+            if (properties.isMergeWwwHost() && mainHost != null && port == -1 && withoutWww(host).equals(withoutWww(mainHost))) {
+                scheme = main.getScheme().toLowerCase(Locale.ROOT);
+                host = mainHost;
+            }
+
+            StringBuilder canonical = new StringBuilder(scheme).append("://").append(host);
+            if (port != -1)
+                canonical.append(':').append(port);
+            canonical.append(path(uri.getRawPath()));
+
+            String query = query(uri.getRawQuery());
+            if (!query.isEmpty())
+                canonical.append('?').append(query);
+
+            return canonical.toString();
+
+        } catch (URISyntaxException ex) {
+            return url;
+        }
+    }
+
+    private String path(String path) {
+        if (path == null || path.isEmpty() || path.equals("/"))
+            return "/";
+
+        TrailingSlash trailingSlash = properties.getTrailingSlash();
+        if (trailingSlash == TrailingSlash.REMOVE && path.endsWith("/"))
+            return path.substring(0, path.length() - 1);
+        if (trailingSlash == TrailingSlash.ADD && !path.endsWith("/"))
+            return path + "/";
+        return path;
+    }
+
+    private String query(String query) {
+        if (query == null || query.isEmpty())
+            return "";
+
+        List<String> parameters = Arrays.stream(query.split("&"))
+                .filter(parameter -> !parameter.isEmpty())
+                .filter(parameter -> !isIgnored(parameter.split("=", 2)[0]))
+                .collect(Collectors.toList());
+
+        if (properties.isSortParameters())
+            parameters.sort(Comparator.naturalOrder());
+
+        return String.join("&", parameters);
+    }
+
+    private boolean isIgnored(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+
+        return properties.getIgnoredParameters().stream().anyMatch(ignored -> ignored.endsWith("*")
+                ? lowerCaseName.startsWith(ignored.substring(0, ignored.length() - 1))
+                : lowerCaseName.equals(ignored));
+    }
+
+    private boolean isDefaultPort(String scheme, int port) {
+        return port == -1
+                || (scheme.equals("http") && port == 80)
+                || (scheme.equals("https") && port == 443);
+    }
+
+    private String withoutWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+}
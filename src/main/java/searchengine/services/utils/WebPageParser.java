@@ -0,0 +1,280 @@
+package searchengine.services.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import searchengine.config.properties.NearDuplicateProperties;
+import searchengine.dto.FetchResponse;
+import searchengine.dto.PageExtract;
+import searchengine.exceptions.InvalidURLException;
+import searchengine.exceptions.ResponseTooLargeException;
+import searchengine.exceptions.RetryableFetchException;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class WebPageParser {
+    private static final Set<String> MARKUP_TYPES = Set.of(
+            "text/html", "application/xhtml+xml", "application/xml", "text/xml");
+
+    private final PropertiesUtil propertiesUtil;
+    private final HttpFetcher httpFetcher;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final NearDuplicateProperties nearDuplicateProperties;
+
+    /**
+     * Sends the validators of {@code page} if it has any. Bodies that are not markup or exceed the site's
+     * body size limit are not downloaded. A transient failure of a retried attempt ends in {@link RetryableFetchException}.
+     * @return {@code null} if the server answered that the page is not modified
+     */
+    public PageExtract parsePage(PageIntrospect page) throws IOException {
+        String url = page.getUrl();
+
+        if (!isValidUrl(url)) {
+            throw new InvalidURLException(url);
+        }
+
+        long maxBodySize = propertiesUtil.getMaxBodySize(page.getMainUrl());
+        FetchResponse response = httpFetcher.fetchPage(url, conditionalHeaders(page), page.getAttempt(), maxBodySize, this::isHtml);
+        int statusCode = response.getStatusCode();
+
+        if (statusCode == HttpStatus.NOT_MODIFIED.value()) {
+            page.setCode(HttpStatus.NOT_MODIFIED);
+            return null;
+        }
+
+        if (statusCode < 200 || statusCode >= 400)
+            throw new HttpStatusException("HTTP error fetching URL", statusCode, url);
+        if (!isHtml(response.getContentType()))
+            throw new UnsupportedMimeTypeException("Unhandled content type", response.getContentType(), url);
+        if (response.isSkipped())
+            throw new ResponseTooLargeException(url, maxBodySize);
+
+        Document doc = Jsoup.parse(
+                new ByteArrayInputStream(response.getBody()),
+                response.getCharset(),
+                response.getUri().toString());
+        PageExtract extract = extract(doc);
+
+        page.setContent(doc.html());
+        page.setBodySize(response.getBody().length);
+        page.setCode(HttpStatus.valueOf(statusCode));
+        page.setEtag(response.getHeaders().firstValue("ETag").orElse(null));
+        page.setLastModified(response.getHeaders().firstValue("Last-Modified").orElse(null));
+        page.setContentHash(contentHash(page.getContent()));
+        page.setFingerprint(fingerprint(extract.getText()));
+        page.setExtract(extract);
+
+        return extract;
+    }
+
+    public PageExtract parseContent(Page page, String url) {
+        return extract(Jsoup.parse(page.getContent(), url));
+    }
+
+    /**
+     * Collects the text as {@link Element#text()} renders it, the title, the links and the declared canonical URL
+     * in one traversal of the document.
+     */
+    public PageExtract extract(Document doc) {
+        Extractor extractor = new Extractor();
+        NodeTraversor.traverse(extractor, doc);
+
+        return new PageExtract(
+                extractor.title == null ? "" : extractor.title,
+                extractor.text.toString().trim(),
+                extractor.links,
+                extractor.canonicalHref == null || extractor.canonicalHref.isEmpty() ? null : extractor.canonicalHref);
+    }
+
+    public Page getPage(PageIntrospect pageIntrospect, Site site) {
+        Page page = new Page();
+        page.setPath(pageIntrospect.getPath());
+        page.setSite(site);
+        page.setGeneration(site.getGeneration());
+        page.setLastVisit(LocalDateTime.now());
+        updatePage(page, pageIntrospect);
+
+        return page;
+    }
+
+    /**
+     * Splits the text of the extract into words once, the length and the lemmas are both taken from them.
+     */
+    public void updatePage(Page page, PageIntrospect pageIntrospect) {
+        PageExtract extract = pageIntrospect.getExtract();
+        extract.setWords(SentenceUtil.splitToWords(extract.getText(), page.getSite().getLanguage()));
+
+        page.setExtract(extract);
+        page.setContent(pageIntrospect.getContent());
+        page.setCode(pageIntrospect.getCode());
+        page.setLength(extract.getWords().length);
+        page.setEtag(pageIntrospect.getEtag());
+        page.setLastModified(pageIntrospect.getLastModified());
+        page.setContentHash(pageIntrospect.getContentHash());
+        page.setFingerprint(pageIntrospect.getFingerprint());
+    }
+
+    public Long fingerprint(String text) {
+        return SimHash.fingerprint(text, nearDuplicateProperties.getShingleSize());
+    }
+
+    /**
+     * A missing robots.txt (4xx) allows everything, an unreachable one (5xx or a failed request) disallows everything
+     * as RFC 9309 requires.
+     */
+    public RobotsTxt getRobotsTxt(String mainUrl) {
+        try {
+            FetchResponse response = httpFetcher.fetch(mainUrl + "/robots.txt");
+            int statusCode = response.getStatusCode();
+
+            if (statusCode == 200)
+                return RobotsTxt.parse(new String(response.getBody(), StandardCharsets.UTF_8));
+            return statusCode >= 500 ? RobotsTxt.UNREACHABLE : RobotsTxt.EMPTY;
+        } catch (IOException ex) {
+            return RobotsTxt.UNREACHABLE;
+        }
+    }
+
+    /**
+     * Canonical URLs of the page's site that may be crawled, in their original order.
+     */
+    public Collection<String> internalUrls(Collection<String> urls, PageIntrospect page) {
+        return urls.stream()
+                .map(url -> canonicalize(url, page))
+                .filter(url -> isInternal(url, page))
+                .distinct()
+                .toList();
+    }
+
+    public boolean isInternal(String url, PageIntrospect page) {
+        return url.startsWith(page.getMainUrl() + "/") && propertiesUtil.checkTypeUrl(url);
+    }
+
+    public String canonicalize(String url, PageIntrospect page) {
+        return urlCanonicalizer.canonicalize(url, page.getMainUrl());
+    }
+
+    /**
+     * @return canonical URL the document declares with {@code <link rel="canonical">}, {@code null} if there is none
+     */
+    public String declaredCanonicalUrl(PageExtract extract, PageIntrospect page) {
+        String href = extract.getCanonicalUrl();
+        return href == null ? null : canonicalize(href, page);
+    }
+
+    private Map<String, String> conditionalHeaders(PageIntrospect page) {
+        Map<String, String> headers = new HashMap<>();
+        if (page.getEtag() != null)
+            headers.put("If-None-Match", page.getEtag());
+        if (page.getLastModified() != null)
+            headers.put("If-Modified-Since", page.getLastModified());
+        return headers;
+    }
+
+    private String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Only markup is parsed as a page, style sheets, scripts and responses without a Content-Type are not.
+     */
+    private boolean isHtml(String contentType) {
+        String mimeType = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return MARKUP_TYPES.contains(mimeType);
+    }
+
+    private boolean isValidUrl(String url) {
+        return url.matches("^(https?)://[-a-zA-Z0-9+&@#/%?=~_|!:,.;]*[-a-zA-Z0-9+&@#/%=~_|]");
+    }
+
+    private static class Extractor implements NodeVisitor {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> links = new ArrayList<>();
+        private String title;
+        private String canonicalHref;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (node instanceof TextNode textNode) {
+                appendText(textNode);
+                return;
+            }
+            if (!(node instanceof Element element))
+                return;
+
+            switch (element.normalName()) {
+                case "a" -> {
+                    String href = element.absUrl("href");
+                    if (!href.isEmpty())
+                        links.add(href);
+                }
+                case "link" -> {
+                    if (canonicalHref == null && element.attr("rel").equalsIgnoreCase("canonical"))
+                        canonicalHref = element.absUrl("href");
+                }
+                case "title" -> {
+                    if (title == null)
+                        title = element.text().trim();
+                }
+                default -> {}
+            }
+
+            if (!text.isEmpty() && (element.isBlock() || element.normalName().equals("br")) && !endsWithSpace())
+                text.append(' ');
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element element
+                    && element.isBlock()
+                    && node.nextSibling() instanceof TextNode
+                    && !endsWithSpace()) {
+                text.append(' ');
+            }
+        }
+
+        private void appendText(TextNode textNode) {
+            if (textNode.parent() instanceof Element parent && parent.tag().preserveWhitespace()) {
+                text.append(textNode.getWholeText());
+            } else {
+                StringUtil.appendNormalisedWhitespace(text, textNode.getWholeText(), endsWithSpace());
+            }
+        }
+
+        private boolean endsWithSpace() {
+            return !text.isEmpty() && text.charAt(text.length() - 1) == ' ';
+        }
+    }
+}
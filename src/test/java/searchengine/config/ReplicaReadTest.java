@@ -0,0 +1,68 @@
+package searchengine.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.utils.RedisClient;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The read pool points to the same in-memory database here, only the pool a connection is taken from matters.
+ */
+@SpringBootTest(properties = {
+        "read-datasource.url=jdbc:hsqldb:mem:testdb;sql.syntax_pgs=true",
+        "read-datasource.username=SA"})
+@AutoConfigureMockMvc
+class ReplicaReadTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SiteRepository siteRepository;
+    @Autowired
+    @Qualifier("readDataSource")
+    private HikariDataSource readDataSource;
+    @MockBean
+    private RedisClient redisClient;
+
+    @BeforeEach
+    void setUp() {
+        Site site = new Site();
+        site.setUrl("https://www.example.com");
+        site.setName("example");
+        site.setLanguage("english");
+        site.setStatus(Status.INDEXED);
+        site.setStatusTime(LocalDateTime.now());
+        siteRepository.save(site);
+    }
+
+    @AfterEach
+    void tearDown() {
+        siteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void searchRequestReadsFromReadPool() throws Exception {
+        // the pool starts with the first connection taken from it
+        assertThat(readDataSource.getHikariPoolMXBean()).isNull();
+
+        mockMvc.perform(get("/api/search").param("query", "apple"))
+                .andExpect(status().isOk());
+
+        assertThat(readDataSource.getHikariPoolMXBean()).isNotNull();
+    }
+}
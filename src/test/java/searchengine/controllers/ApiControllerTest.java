@@ -0,0 +1,41 @@
+package searchengine.controllers;
+
+import org.junit.jupiter.api.Test;
+import searchengine.dto.EncodedResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiControllerTest {
+
+    @Test
+    void gzipIsAcceptedWhenListed() {
+        assertThat(ApiController.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(ApiController.acceptsGzip("deflate;q=1.0, GZIP;q=0.5")).isTrue();
+    }
+
+    @Test
+    void gzipWithZeroQualityIsRefused() {
+        assertThat(ApiController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(ApiController.acceptsGzip("gzip; q=0.000, identity")).isFalse();
+        assertThat(ApiController.acceptsGzip("*, gzip;q=0")).isFalse();
+    }
+
+    @Test
+    void wildcardCoversGzip() {
+        assertThat(ApiController.acceptsGzip("*")).isTrue();
+        assertThat(ApiController.acceptsGzip("identity, *;q=0")).isFalse();
+    }
+
+    @Test
+    void missingHeaderRefusesGzip() {
+        assertThat(ApiController.acceptsGzip(null)).isFalse();
+        assertThat(ApiController.acceptsGzip("identity")).isFalse();
+    }
+
+    @Test
+    void gzipBodyHasItsOwnEtag() {
+        EncodedResponse response = new EncodedResponse(1, "\"1-abc\"", new byte[0], new byte[0]);
+
+        assertThat(response.getGzipEtag()).isEqualTo("\"1-abc-gz\"");
+    }
+}
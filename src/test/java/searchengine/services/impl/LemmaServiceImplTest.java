@@ -0,0 +1,133 @@
+package searchengine.services.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import searchengine.Application;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.interfaces.LemmaService;
+import searchengine.services.utils.RedisClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application instances share the in-memory database, like two crawl workers share the production one.
+ */
+@SpringBootTest
+class LemmaServiceImplTest {
+    private static final int PAGES = 40;
+    private static final int THREADS_PER_INSTANCE = 4;
+
+    @Autowired
+    private LemmaService lemmaService;
+    @Autowired
+    private SiteRepository siteRepository;
+    @Autowired
+    private PageRepository pageRepository;
+    @Autowired
+    private LemmaRepository lemmaRepository;
+    @Autowired
+    private IndexRepository indexRepository;
+    @MockBean
+    private RedisClient redisClient;
+
+    private ConfigurableApplicationContext secondInstance;
+    private Site site;
+
+    @BeforeEach
+    void setUp() {
+        // the schema belongs to the first instance, the second one must not drop it
+        secondInstance = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.hibernate.ddl-auto=none", "spring.jmx.enabled=false")
+                .run();
+
+        site = new Site();
+        site.setUrl("https://www.example.com");
+        site.setName("example");
+        site.setLanguage("english");
+        site.setStatus(Status.INDEXING);
+        site.setStatusTime(LocalDateTime.now());
+        site = siteRepository.save(site);
+    }
+
+    @AfterEach
+    void tearDown() {
+        secondInstance.close();
+
+        indexRepository.deleteAllInBatch();
+        lemmaRepository.deleteAllInBatch();
+        pageRepository.deleteAllInBatch();
+        siteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentInstancesCountEveryPageOnce() throws Exception {
+        List<Page> pages = new ArrayList<>();
+        for (int i = 0; i < PAGES; i++) {
+            Page page = new Page();
+            page.setSite(site);
+            page.setPath("/page-" + i);
+            page.setCode(HttpStatus.OK);
+            page.setContent("<html><body>apple banana " + (i % 2 == 0 ? "cherry" : "damson") + "</body></html>");
+            page.setLength(3);
+            pages.add(page);
+        }
+        pages = pageRepository.saveAll(pages);
+
+        List<LemmaService> instances = List.of(lemmaService, secondInstance.getBean(LemmaService.class));
+        ExecutorService executor = Executors.newFixedThreadPool(instances.size() * THREADS_PER_INSTANCE);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < pages.size(); i++) {
+                Page page = pages.get(i);
+                LemmaService instance = instances.get(i % instances.size());
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    instance.saveLemmas(page);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Void> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Lemma> lemmas = lemmaRepository.findAllBySiteAndGeneration(site, 0, Pageable.unpaged());
+
+        assertThat(lemmas).extracting(Lemma::getLemma)
+                .containsExactlyInAnyOrder("apple", "banana", "cherry", "damson");
+        assertThat(lemmas).allSatisfy(lemma -> assertThat(lemma.getFrequency())
+                .isEqualTo(lemma.getLemma().equals("apple") || lemma.getLemma().equals("banana") ? PAGES : PAGES / 2));
+        assertThat(indexRepository.count()).isEqualTo(PAGES * 3L);
+    }
+}
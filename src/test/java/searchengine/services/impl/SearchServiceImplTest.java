@@ -0,0 +1,159 @@
+package searchengine.services.impl;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import searchengine.dto.SearchResponse;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.interfaces.SearchService;
+import searchengine.services.utils.RedisClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "search.most-popular-lemmas=0"})
+class SearchServiceImplTest {
+    // lemmas of the query and their site, live pages of the site, ranking data of the candidates,
+    // ranks of one chunk of candidates and the pages of the snippet window
+    private static final int STATEMENTS_PER_SEARCH = 6;
+
+    @Autowired
+    private SearchService searchService;
+    @Autowired
+    private SiteRepository siteRepository;
+    @Autowired
+    private PageRepository pageRepository;
+    @Autowired
+    private LemmaRepository lemmaRepository;
+    @Autowired
+    private IndexRepository indexRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    // responses are not cached, every search reaches the database
+    @MockBean
+    private RedisClient redisClient;
+
+    private Site site;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        site = new Site();
+        site.setUrl("https://www.example.com");
+        site.setName("example");
+        site.setLanguage("english");
+        site.setStatus(Status.INDEXED);
+        site.setStatusTime(LocalDateTime.now());
+        site = siteRepository.save(site);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexRepository.deleteAllInBatch();
+        lemmaRepository.deleteAllInBatch();
+        pageRepository.deleteAllInBatch();
+        siteRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void searchRunsFixedNumberOfStatementsRegardlessOfCandidates() {
+        // candidates are the pages of the rarest lemma, "banana" is on every second page
+        index(0, 10);
+        search(0); // loads the lemma statistics and the average page length once
+
+        statistics.clear();
+        SearchResponse response = search(1);
+        long fewCandidates = statistics.getPrepareStatementCount();
+
+        assertThat(response.getCount()).isEqualTo(5);
+        assertThat(fewCandidates).isEqualTo(STATEMENTS_PER_SEARCH);
+
+        index(10, 200);
+
+        statistics.clear();
+        response = search(2);
+        long manyCandidates = statistics.getPrepareStatementCount();
+
+        assertThat(response.getCount()).isEqualTo(100);
+        assertThat(response.getData()).hasSize(5);
+        assertThat(manyCandidates).isEqualTo(STATEMENTS_PER_SEARCH);
+    }
+
+    private SearchResponse search(int offset) {
+        return searchService.search("apple banana", List.of(site), offset, 5);
+    }
+
+    /**
+     * Stores pages {@code from..to} containing "apple", every second one also "banana".
+     */
+    private void index(int from, int to) {
+        List<Page> pages = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Page page = new Page();
+            page.setSite(site);
+            page.setPath("/page-" + i);
+            page.setCode(HttpStatus.OK);
+            page.setContent("<html><head><title>Page " + i + "</title></head><body>"
+                    + (i % 2 == 0 ? "Apple and banana." : "Apple only.") + "</body></html>");
+            page.setLength(3);
+            pages.add(page);
+        }
+        pages = pageRepository.saveAll(pages);
+
+        Map<String, Lemma> lemmas = Map.of(
+                "apple", lemma("apple", to),
+                "banana", lemma("banana", (to + 1) / 2));
+
+        List<Index> indexes = new ArrayList<>();
+        for (Page page : pages) {
+            indexes.add(index(lemmas.get("apple"), page));
+            if (page.getContent().contains("banana"))
+                indexes.add(index(lemmas.get("banana"), page));
+        }
+        indexRepository.saveAll(indexes);
+    }
+
+    private Lemma lemma(String value, int frequency) {
+        Lemma lemma = lemmaRepository.findAllBySiteAndGeneration(site, 0, Pageable.unpaged())
+                .stream()
+                .filter(stored -> stored.getLemma().equals(value))
+                .findAny()
+                .orElseGet(Lemma::new);
+        lemma.setSite(site);
+        lemma.setLemma(value);
+        lemma.setFrequency(frequency);
+        return lemmaRepository.save(lemma);
+    }
+
+    private Index index(Lemma lemma, Page page) {
+        Index index = new Index();
+        index.setLemma(lemma);
+        index.setPage(page);
+        index.setRank(1f);
+        return index;
+    }
+}
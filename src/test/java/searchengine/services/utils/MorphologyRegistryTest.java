@@ -0,0 +1,22 @@
+package searchengine.services.utils;
+
+import org.junit.jupiter.api.Test;
+import searchengine.exceptions.UnsupportedLanguageException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MorphologyRegistryTest {
+    private final MorphologyRegistry morphologyRegistry = new MorphologyRegistry();
+
+    @Test
+    void unknownLanguageIsUnsupported() {
+        assertThatThrownBy(() -> morphologyRegistry.get("german"))
+                .isInstanceOf(UnsupportedLanguageException.class);
+    }
+
+    @Test
+    void missingLanguageIsUnsupported() {
+        assertThatThrownBy(() -> morphologyRegistry.get(null))
+                .isInstanceOf(UnsupportedLanguageException.class);
+    }
+}